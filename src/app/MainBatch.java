@@ -1,25 +1,65 @@
 package app;
 
+import archivos.AdaptivePolicy;
+import archivos.CompressionProfile;
 import batch.BatchProcessor;
 import batch.BatchProcessor.BatchConfig;
 import batch.BatchProcessor.Mode;
+import metrics.Metrics;
+
+import java.util.Locale;
 
 public class MainBatch {
     // Uso:
-    // java app.MainBatch <modo> <inDir> <outDir> [password]
+    // java app.MainBatch <modo> <inDir> <outDir> [password] [--profile FAST|BALANCED|MAX|COLD] [--adaptive] [--skip-compressed]
     // modo: COMPRESS | COMPRESS_ENCRYPT | DECOMPRESS | DECRYPT_DECOMPRESS
+    // Perfil por defecto: -Dsfe.profile (BALANCED)
+    // --adaptive (o -Dsfe.adaptive=true): salta a STORED o al códec ganador según el historial del log
+    // --skip-compressed: omite gzip/zip/png/jpeg/mp4/7z/xz/zstd/bzip2 detectados por número mágico
+    // password es el único argumento posicional; una opción --x desconocida o sin valor sale con el uso
+    // Métricas: JMX siempre (sfe:type=Metrics); Prometheus con
+    //   -Dsfe.metrics.http=9464 (GET /metrics, solo loopback salvo -Dsfe.metrics.bind=0.0.0.0)
+    //   y/o -Dsfe.metrics.file=metrics.prom
+    private static final String USO =
+            "Uso: java app.MainBatch <modo> <inDir> <outDir> [password] [--profile FAST|BALANCED|MAX|COLD] [--adaptive] [--skip-compressed]";
+
     public static void main(String[] args) throws Exception {
         if (args.length < 3) {
-            System.out.println("Uso: java app.MainBatch <modo> <inDir> <outDir> [password]");
+            System.out.println(USO);
             return;
         }
         Mode mode = Mode.valueOf(args[0]);
         String inDir = args[1];
         String outDir = args[2];
-        String pw = (args.length >= 4) ? args[3] : "";
+        String pw = null;
+        CompressionProfile profile = CompressionProfile.defaultProfile();
+        boolean adaptive = AdaptivePolicy.enabledByDefault(), skipCompressed = false;
+        for (int i = 3; i < args.length; i++) {
+            switch (args[i]) {
+                case "--profile" -> {
+                    if (i + 1 >= args.length) usage("Falta el valor de --profile");
+                    profile = CompressionProfile.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                }
+                case "--adaptive" -> adaptive = true;
+                case "--skip-compressed" -> skipCompressed = true;
+                default -> {
+                    if (args[i].startsWith("--")) usage("Opción desconocida: " + args[i]);
+                    if (pw != null) usage("Argumento de más: " + args[i]);
+                    pw = args[i];
+                }
+            }
+        }
+        if (pw == null) pw = "";
 
         BatchConfig cfg = new BatchConfig(inDir, outDir, mode)
-                .recursive(true).overwrite(true).dryRun(false).password(pw);
+                .recursive(true).overwrite(true).dryRun(false).password(pw).profile(profile).adaptive(adaptive).skipCompressed(skipCompressed);
+        Metrics.start();
         BatchProcessor.runBatch(cfg);
     }
+
+    private static void usage(String error) {
+        System.out.println(error);
+        System.out.println(USO);
+        System.exit(2);
+    }
 }
@@ -0,0 +1,53 @@
+package app;
+
+import archivos.ContainerCatalog;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Catálogo de contenedores SFE1 de una carpeta (lee solo cabeceras, en paralelo).
+ *
+ * Uso:
+ *   java app.MainCatalog <carpeta> [--threads N]
+ */
+public class MainCatalog {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) { usage(); return; }
+        Path root = Paths.get(args[0]);
+        int threads = Runtime.getRuntime().availableProcessors() * 2; // E/S: más hilos que núcleos
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else { usage(); return; }
+        }
+
+        long t0 = System.nanoTime();
+        ContainerCatalog.Summary s = ContainerCatalog.scan(root, threads);
+        double secs = (System.nanoTime() - t0) / 1e9;
+
+        System.out.printf("Archivos: %d | Contenedores SFE1: %d | Otros: %d | Ilegibles: %d | Inconsistentes: %d%n",
+                s.files, s.containers, s.notSfe1, s.unreadable, s.inconsistent);
+        System.out.printf("STORED: %d | Encriptados: %d%n", s.stored, s.encrypted);
+        System.out.printf("Bytes en contenedores: %d%n", s.compressedBytes);
+        System.out.println("\nAlgoritmo:");
+        for (Map.Entry<String, Long> e : s.byAlgorithm.entrySet()) System.out.printf("  %-12s %10d%n", e.getKey(), e.getValue());
+        if (!s.byCipher.isEmpty()) {
+            System.out.println("Cifrado:");
+            for (Map.Entry<String, Long> e : s.byCipher.entrySet()) System.out.printf("  %-12s %10d%n", e.getKey(), e.getValue());
+        }
+        if (s.unreadable > 0) {
+            System.out.println("Ilegibles:");
+            for (String u : s.unreadableSamples) System.out.println("  " + u);
+            if (s.unreadable > s.unreadableSamples.size()) {
+                System.out.printf("  ... y %d más%n", s.unreadable - s.unreadableSamples.size());
+            }
+        }
+        System.out.printf(Locale.ROOT, "%nTiempo: %.2f s (%d hilos)%n", secs, threads);
+    }
+
+    private static void usage() {
+        System.out.println("Uso: java app.MainCatalog <carpeta> [--threads N]");
+    }
+}
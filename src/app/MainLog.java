@@ -22,7 +22,7 @@ public class MainLog {
             System.out.println("Listo: " + recuperado + " creado.");
 
             // 3. Aviso final
-            System.out.println("Revisa el archivo operaciones.log para ver el registro.");
+            System.out.println("Revisa el archivo operaciones.jsonl para ver el registro (o app.MainLogQuery).");
 
         } catch (Exception e) {
             System.out.println("Error en fase 3: " + e.getMessage());
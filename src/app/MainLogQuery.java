@@ -0,0 +1,67 @@
+package app;
+
+import log.AsyncLogWriter;
+import log.LogQuery;
+import log.LogQuery.Agg;
+import log.LogQuery.Key;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Consultas sobre el log estructurado (operaciones.jsonl y segmentos rotados .gz).
+ *
+ * Uso:
+ *   java app.MainLogQuery [--log operaciones.jsonl] [--by ext,day] [--since 2026-10-12]
+ *                         [--until 2026-10-19T12:00] [--mode COMPRESS] [--alg DEFLATE] [--ext txt]
+ * --by acepta: alg, mode, ext, hour, day, week, month (se pueden combinar con comas).
+ */
+public class MainLogQuery {
+    public static void main(String[] args) throws Exception {
+        Path log = AsyncLogWriter.Config.fromSystemProperties().file;
+        LogQuery.Query q = new LogQuery.Query();
+
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (i + 1 >= args.length) { usage(); return; }
+            String v = args[++i];
+            switch (a) {
+                case "--log"   -> log = Paths.get(v);
+                case "--by"    -> { for (String k : v.split(",")) q.by(Key.valueOf(k.trim().toUpperCase(Locale.ROOT))); }
+                case "--since" -> q.since(parseTime(v));
+                case "--until" -> q.until(parseTime(v));
+                case "--mode"  -> q.mode(v);
+                case "--alg"   -> q.alg(v);
+                case "--ext"   -> q.ext(v.startsWith(".") ? v.substring(1) : v);
+                default -> { usage(); return; }
+            }
+        }
+
+        LogQuery.Result r = LogQuery.run(log, q);
+        System.out.printf("%-32s %10s %16s %16s %16s %8s%n", "grupo", "ops", "bytes_in", "bytes_out", "ahorrado", "ratio");
+        for (Map.Entry<String, Agg> e : r.groups.entrySet()) print(e.getKey(), e.getValue());
+        print("TOTAL", r.total);
+        System.out.printf("%nSegmentos leídos: %d | omitidos por fecha: %d | líneas ignoradas: %d%n",
+                r.segmentsRead, r.segmentsSkipped, r.skippedLines);
+    }
+
+    private static void print(String k, Agg a) {
+        System.out.printf(Locale.ROOT, "%-32s %10d %16d %16d %16d %8.3f%n", k, a.count, a.bytesIn, a.bytesOut, a.saved, a.ratio());
+    }
+
+    /** Acepta fecha (2026-10-12) o fecha-hora (2026-10-12T08:30). */
+    private static long parseTime(String v) {
+        LocalDateTime t = v.contains("T") ? LocalDateTime.parse(v) : LocalDate.parse(v).atStartOfDay();
+        return t.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void usage() {
+        System.out.println("Uso: java app.MainLogQuery [--log operaciones.jsonl] [--by alg,mode,ext,hour,day,week,month]"
+                + " [--since AAAA-MM-DD[THH:MM]] [--until ...] [--mode M] [--alg A] [--ext E]");
+    }
+}
@@ -1,21 +1,81 @@
 package app;
 
+import archivos.ContainerInfo;
+import archivos.ContentDigest;
+import archivos.FileCompressor;
+
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32C;
 
+/**
+ * Compara dos árboles de carpetas.
+ *
+ * Los archivos comunes se verifican en paralelo: primero el tamaño, luego se leen ambos
+ * por bloques de 1 MB (buffers directos) y se corta en el primer bloque distinto.
+ * Con --check sha256|crc32c se calcula el hash completo de ambos lados (crc32c es
+ * mucho más rápido y no criptográfico).
+ *
+ * Con --archives la segunda carpeta contiene los contenedores SFE1 (.cmp/.ec) y cada
+ * uno se restaura en memoria y se compara contra su original, sin escribir nada a
+ * disco. El original de rel/nombre.cmp es rel/nombre.* (el lote no guarda la extensión).
+ * Con --digest-only, si el contenedor guarda longitud y digest del original, solo se
+ * lee el original y se compara contra ellos (sin descomprimir).
+ *
+ * Uso:
+ *   VerifyFolders <carpeta_original> <carpeta_recuperada> [--threads N] [--check bytes|sha256|crc32c]
+ *   VerifyFolders <carpeta_original> <carpeta_contenedores> --archives [--digest-only] [--password clave] [--threads N]
+ */
 public class VerifyFolders {
 
+    public enum Check { BYTES, SHA256, CRC32C }
+
+    private static final int BLOCK = 1 << 20;
+
+    private static final String USO =
+            "Uso: VerifyFolders <carpeta_original> <carpeta_recuperada> [--threads N] [--check bytes|sha256|crc32c]\n"
+            + "     VerifyFolders <carpeta_original> <carpeta_contenedores> --archives [--digest-only] [--password clave] [--threads N]\n"
+            + "Ejemplo: VerifyFolders Entrada RecuperadosEC";
+
     public static void main(String[] args) {
         if (args.length < 2) {
-            System.out.println("Uso: VerifyFolders <carpeta_original> <carpeta_recuperada>");
-            System.out.println("Ejemplo: VerifyFolders Entrada RecuperadosEC");
+            System.out.println(USO);
             System.exit(2);
         }
         Path dirA = Paths.get(args[0]);
         Path dirB = Paths.get(args[1]);
+        int threads = Runtime.getRuntime().availableProcessors() * 2; // E/S: más hilos que núcleos
+        Check check = Check.BYTES;
+        boolean archives = false, digestOnly = false;
+        String password = null;
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--archives" -> archives = true;
+                case "--digest-only" -> digestOnly = true;
+                case "--threads" -> {
+                    String v = value(args, i++);
+                    try { threads = Integer.parseInt(v); }
+                    catch (NumberFormatException e) { usage("Valor inválido para --threads: " + v); }
+                    if (threads < 1) usage("Valor inválido para --threads: " + v);
+                }
+                case "--check" -> {
+                    String v = value(args, i++);
+                    try { check = Check.valueOf(v.toUpperCase(Locale.ROOT)); }
+                    catch (IllegalArgumentException e) { usage("Valor inválido para --check: " + v); }
+                }
+                case "--password" -> password = value(args, i++);
+                default -> usage("Opción desconocida: " + args[i]);
+            }
+        }
 
         if (!Files.isDirectory(dirA) || !Files.isDirectory(dirB)) {
             System.err.println("Ambas rutas deben ser carpetas existentes.");
@@ -23,34 +83,48 @@ public class VerifyFolders {
         }
 
         try {
-            Result r = compareTrees(dirA, dirB);
-            System.out.println("\n==== RESUMEN ====");
-            System.out.println("Iguales     : " + r.equalsCount);
-            System.out.println("Distintos   : " + r.diffCount);
-            System.out.println("Solo en A   : " + r.onlyInACount);
-            System.out.println("Solo en B   : " + r.onlyInBCount);
-
-            if (r.diffCount == 0 && r.onlyInACount == 0 && r.onlyInBCount == 0) {
-                System.out.println("OK -> Carpetas equivalentes (byte a byte).");
-                System.exit(0);
-            } else {
-                System.out.println("NO COINCIDEN");
-                System.exit(1);
-            }
+            Result r = archives ? compareArchives(dirA, dirB, password, digestOnly, threads)
+                                : compareTrees(dirA, dirB, check, threads);
+            printSummary(r);
+            System.exit(r.ok() ? 0 : 1);
         } catch (Exception e) {
             e.printStackTrace();
             System.exit(3);
         }
     }
 
-    private static class Result {
-        int equalsCount = 0;
-        int diffCount = 0;
-        int onlyInACount = 0;
-        int onlyInBCount = 0;
+    /** Valor de la opción args[i]; sale con el uso si es el último argumento. */
+    private static String value(String[] args, int i) {
+        if (i + 1 >= args.length) usage("Falta el valor de " + args[i]);
+        return args[i + 1];
     }
 
-    private static Result compareTrees(Path dirA, Path dirB) throws Exception {
+    private static void usage(String error) {
+        System.out.println(error);
+        System.out.println(USO);
+        System.exit(2);
+    }
+
+    /** Resumen de una verificación (también lo usa la verificación de contenedores). */
+    public static final class Result {
+        public int equalsCount = 0;
+        public int diffCount = 0;
+        public int onlyInACount = 0;
+        public int onlyInBCount = 0;
+
+        public boolean ok() { return diffCount == 0 && onlyInACount == 0 && onlyInBCount == 0; }
+    }
+
+    static void printSummary(Result r) {
+        System.out.println("\n==== RESUMEN ====");
+        System.out.println("Iguales     : " + r.equalsCount);
+        System.out.println("Distintos   : " + r.diffCount);
+        System.out.println("Solo en A   : " + r.onlyInACount);
+        System.out.println("Solo en B   : " + r.onlyInBCount);
+        System.out.println(r.ok() ? "OK -> Carpetas equivalentes (byte a byte)." : "NO COINCIDEN");
+    }
+
+    public static Result compareTrees(Path dirA, Path dirB, Check check, int threads) throws IOException {
         Map<String, Path> filesA = listFiles(dirA);
         Map<String, Path> filesB = listFiles(dirB);
 
@@ -67,33 +141,215 @@ public class VerifyFolders {
             res.onlyInBCount++;
         }
 
-        // Comparar comunes
-        for (String rel : intersect(filesA.keySet(), filesB.keySet())) {
-            Path a = filesA.get(rel);
-            Path b = filesB.get(rel);
-
-            long sizeA = Files.size(a);
-            long sizeB = Files.size(b);
-            if (sizeA != sizeB) {
-                System.out.println("Tamaño distinto: " + rel + " (A=" + sizeA + " B=" + sizeB + ")");
-                res.diffCount++;
-                continue;
+        // Comparar comunes en paralelo; los mensajes se imprimen en orden de ruta.
+        List<String> common = new ArrayList<>(intersect(filesA.keySet(), filesB.keySet()));
+        List<String> problems = parallel(threads, common, rel -> {
+            try {
+                return compareFiles(rel, filesA.get(rel), filesB.get(rel), check);
+            } catch (IOException e) {
+                return "Error al leer: " + rel + " (" + e.getMessage() + ")";
             }
-            String hA = sha256(a);
-            String hB = sha256(b);
-            if (!hA.equals(hB)) {
-                System.out.println("Contenido distinto: " + rel);
-                System.out.println("  SHA-256 A: " + hA);
-                System.out.println("  SHA-256 B: " + hB);
-                res.diffCount++;
+        });
+        for (String p : problems) {
+            if (p == null) { res.equalsCount++; continue; }
+            System.out.println(p);
+            res.diffCount++;
+        }
+        return res;
+    }
+
+    /**
+     * Restaura en memoria cada contenedor de archDir y lo compara con su original en
+     * origDir. "Solo en A" son originales sin contenedor; "Solo en B", contenedores sin
+     * original (o con más de un candidato). Con digestOnly se usa el digest guardado cuando
+     * el contenedor lo tiene. Un archivo ilegible o un contenedor truncado se empareja igual
+     * y se informa como dañado.
+     */
+    public static Result compareArchives(Path origDir, Path archDir, String password, boolean digestOnly, int threads) throws IOException {
+        Map<String, List<Path>> originals = new TreeMap<>();
+        for (Map.Entry<String, Path> e : listFiles(origDir).entrySet()) {
+            originals.computeIfAbsent(stripExt(e.getKey()), k -> new ArrayList<>()).add(e.getValue());
+        }
+        Map<String, Path> containers = new TreeMap<>();
+        Map<String, String> damaged = new HashMap<>();
+        for (Map.Entry<String, Path> e : listFiles(archDir).entrySet()) {
+            ContainerInfo info = ContainerInfo.probeQuietly(e.getValue());
+            if (!info.sfe1() && info.error() == null) continue;
+            containers.put(e.getKey(), e.getValue());
+            if (info.problem() != null) damaged.put(e.getKey(), info.problem());
+        }
+
+        Result res = new Result();
+        Set<String> matched = new HashSet<>();
+        List<String> pending = new ArrayList<>();
+        for (String rel : containers.keySet()) {
+            List<Path> cand = originals.get(stripExt(rel));
+            if (cand == null || cand.size() != 1) {
+                System.out.println("Solo en B: " + rel + (cand == null ? "" : " (varios originales posibles)"));
+                res.onlyInBCount++;
             } else {
-                res.equalsCount++;
+                matched.add(stripExt(rel));
+                pending.add(rel);
+            }
+        }
+        for (Map.Entry<String, List<Path>> e : originals.entrySet()) {
+            if (matched.contains(e.getKey())) continue;
+            for (Path p : e.getValue()) {
+                System.out.println("Solo en A: " + origDir.relativize(p).toString().replace('\\', '/'));
+                res.onlyInACount++;
+            }
+        }
+
+        List<String> problems = parallel(threads, pending, rel -> {
+            Path orig = originals.get(stripExt(rel)).get(0);
+            if (damaged.containsKey(rel)) return "Contenedor dañado: " + rel + " (" + damaged.get(rel) + ")";
+            try {
+                if (digestOnly) {
+                    ContentDigest.Section d = FileCompressor.storedDigest(containers.get(rel), password);
+                    if (d != null) return compareWithDigest(rel, d, orig);
+                }
+                byte[] data = FileCompressor.restore(containers.get(rel), password);
+                return compareWithFile(rel, data, orig);
+            } catch (IOException e) {
+                return "No se pudo restaurar: " + rel + " (" + e.getMessage() + ")";
             }
+        });
+        for (String p : problems) {
+            if (p == null) { res.equalsCount++; continue; }
+            System.out.println(p);
+            res.diffCount++;
         }
         return res;
     }
 
-    private static Map<String, Path> listFiles(Path base) throws IOException {
+    /** Compara contenido restaurado en memoria con el original, por bloques. */
+    static String compareWithFile(String rel, byte[] data, Path orig) throws IOException {
+        long size = Files.size(orig);
+        if (size != data.length) return "Tamaño distinto: " + rel + " (original=" + size + " restaurado=" + data.length + ")";
+        ByteBuffer buf = BUFS.get()[0];
+        try (FileChannel ch = FileChannel.open(orig, StandardOpenOption.READ)) {
+            int pos = 0;
+            while (pos < data.length) {
+                buf.clear();
+                int n = fill(ch, buf);
+                if (n == 0) break;
+                buf.flip();
+                int m = buf.mismatch(ByteBuffer.wrap(data, pos, Math.min(n, data.length - pos)));
+                if (m >= 0) return "Contenido distinto: " + rel + " (primer byte distinto en " + (pos + m) + ")";
+                pos += n;
+            }
+        }
+        return null;
+    }
+
+    static String compareWithDigest(String rel, ContentDigest.Section d, Path orig) throws IOException {
+        long size = Files.size(orig);
+        if (size != d.originalLength()) return "Tamaño distinto: " + rel + " (original=" + size + " registrado=" + d.originalLength() + ")";
+        byte[] h = ContentDigest.of(d.kind(), orig);
+        return Arrays.equals(h, d.digest()) ? null
+                : "Contenido distinto: " + rel + " (" + d.kind() + " original=" + hex(h) + " registrado=" + hex(d.digest()) + ")";
+    }
+
+    private static String stripExt(String rel) {
+        int slash = rel.lastIndexOf('/');
+        int dot = rel.lastIndexOf('.');
+        return (dot > slash) ? rel.substring(0, dot) : rel;
+    }
+
+    @FunctionalInterface
+    interface Task<T> { String run(T item); }
+
+    /** Aplica task a cada elemento con hasta threads hilos; conserva el orden de entrada. */
+    static <T> List<String> parallel(int threads, List<T> items, Task<T> task) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            return pool.submit(() -> items.parallelStream().map(task::run).collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Verificación cancelada");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Compara dos archivos; null si son iguales, si no el mensaje para rel. */
+    static String compareFiles(String rel, Path a, Path b, Check check) throws IOException {
+        long sizeA = Files.size(a);
+        long sizeB = Files.size(b);
+        if (sizeA != sizeB) return "Tamaño distinto: " + rel + " (A=" + sizeA + " B=" + sizeB + ")";
+        if (check != Check.BYTES) {
+            String hA = hash(a, check), hB = hash(b, check);
+            return hA.equals(hB) ? null
+                    : "Contenido distinto: " + rel + "\n  " + check + " A: " + hA + "\n  " + check + " B: " + hB;
+        }
+        long at = mismatch(a, b);
+        return (at < 0) ? null : "Contenido distinto: " + rel + " (primer byte distinto en " + at + ")";
+    }
+
+    private static final ThreadLocal<ByteBuffer[]> BUFS = ThreadLocal.withInitial(() ->
+            new ByteBuffer[]{ ByteBuffer.allocateDirect(BLOCK), ByteBuffer.allocateDirect(BLOCK) });
+
+    /** Offset del primer byte distinto, o -1 si son iguales (mismo tamaño). */
+    static long mismatch(Path a, Path b) throws IOException {
+        ByteBuffer[] bufs = BUFS.get();
+        ByteBuffer ba = bufs[0], bb = bufs[1];
+        try (FileChannel ca = FileChannel.open(a, StandardOpenOption.READ);
+             FileChannel cb = FileChannel.open(b, StandardOpenOption.READ)) {
+            long pos = 0;
+            while (true) {
+                ba.clear(); bb.clear();
+                int na = fill(ca, ba), nb = fill(cb, bb);
+                ba.flip(); bb.flip();
+                int m = ba.mismatch(bb);
+                if (m >= 0) return pos + m;
+                if (na < BLOCK) return -1;
+                pos += na;
+            }
+        }
+    }
+
+    private static int fill(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining() && ch.read(buf) >= 0) { /* leer hasta llenar o EOF */ }
+        return buf.position();
+    }
+
+    static String hash(Path p, Check check) throws IOException {
+        ByteBuffer buf = BUFS.get()[0];
+        if (check == Check.CRC32C) {
+            CRC32C crc = new CRC32C();
+            try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+                while (true) {
+                    buf.clear();
+                    if (fill(ch, buf) == 0) break;
+                    buf.flip();
+                    crc.update(buf);
+                }
+            }
+            return String.format("%08x", crc.getValue());
+        }
+        MessageDigest md;
+        try { md = MessageDigest.getInstance("SHA-256"); }
+        catch (NoSuchAlgorithmException e) { throw new IllegalStateException(e); }
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            while (true) {
+                buf.clear();
+                if (fill(ch, buf) == 0) break;
+                buf.flip();
+                md.update(buf);
+            }
+        }
+        return hex(md.digest());
+    }
+
+    static String hex(byte[] dig) {
+        StringBuilder sb = new StringBuilder(dig.length * 2);
+        for (byte x : dig) sb.append(Character.forDigit((x >>> 4) & 0xF, 16)).append(Character.forDigit(x & 0xF, 16));
+        return sb.toString();
+    }
+
+    static Map<String, Path> listFiles(Path base) throws IOException {
         try (var stream = Files.walk(base)) {
             return stream.filter(Files::isRegularFile)
                     .collect(Collectors.toMap(
@@ -114,13 +370,4 @@ public class VerifyFolders {
         for (String x : a) if (b.contains(x)) out.add(x);
         return out;
     }
-
-    private static String sha256(Path p) throws Exception {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        byte[] data = Files.readAllBytes(p);
-        byte[] dig = md.digest(data);
-        StringBuilder sb = new StringBuilder(dig.length * 2);
-        for (byte x : dig) sb.append(String.format("%02x", x));
-        return sb.toString();
-    }
 }
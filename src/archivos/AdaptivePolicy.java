@@ -0,0 +1,179 @@
+package archivos;
+
+import log.AsyncLogWriter;
+import log.Json;
+import log.LogSegments;
+import metrics.Metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Política adaptativa de estrategias aprendida del historial de operaciones.
+ *
+ * Por extensión y tamaño (buckets de potencias de 4) cuenta qué resultado ganó en
+ * compresiones anteriores (STORED o el nombre del códec: LZSS, DEFLATE, EXTERNAL, BWT,
+ * CM o un plugin) y el ratio observado. Con suficientes muestras y un ganador dominante,
+ * los archivos nuevos van directo a STORED o solo al códec ganador; si no, se prueban
+ * todas las estrategias.
+ *
+ * Para no quedar obsoleta:
+ *  - 1 de cada sfe.adaptive.reprobe decisiones por grupo vuelve a probar todo;
+ *  - solo las pruebas completas (PROBE) alimentan el modelo, en caliente y al cargar el
+ *    log (campo "route"): una compresión por ruta impuesta solo confirmaría la decisión
+ *    que la produjo y el ganador nunca perdería la dominancia;
+ *  - los contadores se reducen a la mitad al llegar a DECAY_AT (olvido exponencial).
+ *
+ * Se carga del log JSONL (segmentos rotados incluidos) y se activa con
+ * -Dsfe.adaptive=true o BatchConfig.adaptive(true).
+ */
+public final class AdaptivePolicy {
+
+    /** Decisión para un archivo: PROBE (probar todo), STORED o solo el códec del registro con ese nombre. */
+    public record Route(String name) {
+        public static final Route PROBE = new Route("PROBE"), STORED = new Route("STORED");
+
+        /** Solo el códec ganador (nombre de CompressorStrategy.name()). */
+        public static Route only(String codec) {
+            return codec.equals(STORED.name) ? STORED : new Route(codec);
+        }
+
+        public boolean probe() { return this == PROBE; }
+    }
+
+    private static final int MIN_SAMPLES = Integer.getInteger("sfe.adaptive.min", 8);
+    private static final int REPROBE = Math.max(2, Integer.getInteger("sfe.adaptive.reprobe", 16));
+    private static final double DOMINANCE = 0.9;
+    private static final int DECAY_AT = 256;
+
+    /** Historial de un grupo extensión/tamaño: victorias por resultado (STORED o nombre de códec). */
+    private static final class Stats {
+        final Map<String, Long> wins = new TreeMap<>();
+        long samples, bytesIn, bytesOut;
+        long decisions;
+
+        synchronized double ratio() { return bytesIn == 0 ? 1.0 : (double) bytesOut / bytesIn; }
+
+        synchronized void add(String alg, long in, long out) {
+            if (alg.equals("MIXED")) alg = "DEFLATE"; // MIXTO es DEFLATE por bloque
+            wins.merge(alg, 1L, Long::sum);
+            samples++;
+            bytesIn += in;
+            bytesOut += out;
+            if (samples >= DECAY_AT) {
+                samples >>= 1; bytesIn >>= 1; bytesOut >>= 1;
+                wins.replaceAll((k, v) -> v >> 1);
+                wins.values().removeIf(v -> v == 0);
+            }
+        }
+
+        synchronized Route decide() {
+            if (samples < MIN_SAMPLES) return Route.PROBE;
+            if (++decisions % REPROBE == 0) return Route.PROBE;
+            double min = samples * DOMINANCE;
+            for (Map.Entry<String, Long> e : wins.entrySet()) {
+                if (e.getValue() >= min) return Route.only(e.getKey());
+            }
+            return Route.PROBE;
+        }
+
+        @Override public synchronized String toString() {
+            StringBuilder sb = new StringBuilder("n=").append(samples);
+            wins.forEach((k, v) -> sb.append(' ').append(k.toLowerCase(Locale.ROOT)).append('=').append(v));
+            return sb.append(String.format(Locale.ROOT, " ratio=%.3f", ratio())).toString();
+        }
+    }
+
+    private final Map<String, Stats> groups = new ConcurrentHashMap<>();
+
+    private AdaptivePolicy() {}
+
+    private static final class Holder {
+        static final AdaptivePolicy INSTANCE = loadQuietly(AsyncLogWriter.Config.fromSystemProperties().file);
+    }
+
+    /** Instancia compartida, cargada del log configurado la primera vez que se pide. */
+    public static AdaptivePolicy shared() { return Holder.INSTANCE; }
+
+    public static boolean enabledByDefault() { return Boolean.getBoolean("sfe.adaptive"); }
+
+    /** La política por defecto de FileCompressor: shared() si -Dsfe.adaptive=true, si no null. */
+    static AdaptivePolicy defaultPolicy() { return enabledByDefault() ? shared() : null; }
+
+    public static AdaptivePolicy empty() { return new AdaptivePolicy(); }
+
+    /** Aprende de las compresiones registradas en el log (y sus segmentos rotados); solo las de ruta PROBE. */
+    public static AdaptivePolicy fromLog(Path activeLog) throws IOException {
+        AdaptivePolicy p = new AdaptivePolicy();
+        for (Path seg : LogSegments.list(activeLog)) {
+            try (BufferedReader br = LogSegments.open(seg)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.isEmpty() || line.charAt(0) != '{') continue;
+                    try {
+                        Map<String, String> m = Json.parseFlat(line);
+                        String mode = m.get("mode");
+                        if (mode == null || !mode.startsWith("COMPRESS") || m.get("alg") == null) continue;
+                        String route = m.get("route"); // ausente en logs anteriores: se toman como prueba
+                        if (route != null && !route.equals(Route.PROBE.name())) continue;
+                        long in = Long.parseLong(m.get("sizeIn")), out = Long.parseLong(m.get("sizeOut"));
+                        String ext = m.get("ext");
+                        p.stats(ext == null ? "" : ext, in).add(m.get("alg"), in, out);
+                    } catch (RuntimeException ignored) {} // línea dañada
+                }
+            }
+        }
+        return p;
+    }
+
+    private static AdaptivePolicy loadQuietly(Path log) {
+        try {
+            return fromLog(log);
+        } catch (IOException e) {
+            System.err.println("[ADAPTIVE] no se pudo leer el historial: " + e.getMessage());
+            return new AdaptivePolicy();
+        }
+    }
+
+    /** Ruta para un archivo nuevo según su extensión y tamaño original. */
+    public Route route(Path file, long size) {
+        Route r = stats(extOf(file), size).decide();
+        Metrics.counter("sfe_adaptive_routes_total", "route", r.name()).inc();
+        return r;
+    }
+
+    /** Registra el resultado de una compresión (alg = STORED o el nombre del códec ganador). */
+    public void observe(Path file, long sizeIn, String alg, long sizeOut) {
+        stats(extOf(file), sizeIn).add(alg, sizeIn, sizeOut);
+    }
+
+    /** Vista ordenada del modelo ("ext|bucket" -> resumen), para diagnóstico. */
+    public SortedMap<String, String> snapshot() {
+        SortedMap<String, String> m = new TreeMap<>();
+        groups.forEach((k, v) -> m.put(k, v.toString()));
+        return m;
+    }
+
+    private Stats stats(String ext, long size) {
+        return groups.computeIfAbsent(ext + "|" + bucket(size), k -> new Stats());
+    }
+
+    /** Bucket de tamaño: k cubre [4^k, 4^(k+1)) bytes (7 = 16-64 KB, 10 = 1-4 MB). */
+    static int bucket(long size) {
+        return (63 - Long.numberOfLeadingZeros(Math.max(1, size))) / 2;
+    }
+
+    private static String extOf(Path p) {
+        Path f = (p == null) ? null : p.getFileName();
+        if (f == null) return "";
+        String n = f.toString();
+        int dot = n.lastIndexOf('.');
+        return (dot > 0 && dot < n.length() - 1) ? n.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
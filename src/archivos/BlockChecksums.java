@@ -0,0 +1,141 @@
+package archivos;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32C;
+
+/**
+ * CRC32C por bloque del payload (FLAGS bit5). El JDK acelera CRC32C con intrínsecos.
+ *
+ * Sección: BLOCK_SIZE(4) | COUNT(4) | CRC32C[COUNT](4 c/u), todo big-endian.
+ *
+ * Al leer, cada bloque se verifica apenas llega; con payloads grandes la verificación
+ * corre en otros hilos mientras se sigue leyendo, y un bloque dañado se informa con
+ * su número y offset dentro del payload.
+ */
+public final class BlockChecksums {
+    private BlockChecksums(){}
+
+    public static final int DEFAULT_BLOCK = 64 * 1024;
+    /** Por debajo de esto se verifica en el mismo hilo (no compensa despachar). */
+    private static final int ASYNC_MIN = 1 << 20;
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), r -> {
+                Thread t = new Thread(r, "sfe-crc");
+                t.setDaemon(true);
+                return t;
+            });
+
+    public record Table(int blockSize, int[] crcs) {
+        public int encodedLength() { return 8 + 4 * crcs.length; }
+
+        public byte[] encode() {
+            ByteBuffer b = ByteBuffer.allocate(encodedLength()).putInt(blockSize).putInt(crcs.length);
+            for (int c : crcs) b.putInt(c);
+            return b.array();
+        }
+
+        /** Cantidad de bloques que corresponde a un payload de n bytes. */
+        boolean fits(int n) { return crcs.length == (n + blockSize - 1) / blockSize; }
+    }
+
+    /** Calcula la tabla de un payload. */
+    public static Table of(byte[] payload, int blockSize) {
+        int count = (payload.length + blockSize - 1) / blockSize;
+        int[] crcs = new int[count];
+        for (int k = 0; k < count; k++) {
+            int off = k * blockSize;
+            crcs[k] = crc(payload, off, Math.min(blockSize, payload.length - off));
+        }
+        return new Table(blockSize, crcs);
+    }
+
+    /**
+     * Lee la tabla; remaining = bytes que quedan en el flujo de datos (tabla incluida).
+     * COUNT se valida contra lo que cabe antes de reservar nada: un contenedor dañado
+     * da IOException, no OutOfMemoryError.
+     */
+    static Table read(InputStream in, int remaining) throws IOException {
+        if (remaining < 8) throw new EOFException("Tabla de CRC truncada");
+        ByteBuffer h = ByteBuffer.wrap(readFully(in, 8));
+        int bs = h.getInt(), count = h.getInt();
+        if (bs <= 0 || count < 0 || count > (remaining - 8) / 4) throw new IOException("Tabla de CRC inválida: " + count + " bloques");
+        // El payload no puede pasar de lo que queda tras la tabla: a lo sumo ceil(resto / bs) bloques.
+        long rest = remaining - 8 - 4L * count;
+        if (count > (rest + bs - 1) / bs) throw new IOException("Tabla de CRC inconsistente con la longitud del payload");
+        ByteBuffer b = ByteBuffer.wrap(readFully(in, 4 * count));
+        int[] crcs = new int[count];
+        for (int k = 0; k < count; k++) crcs[k] = b.getInt();
+        return new Table(bs, crcs);
+    }
+
+    /** Lee n bytes de in verificando cada bloque contra la tabla. */
+    static byte[] readVerified(InputStream in, int n, Table t) throws IOException {
+        if (!t.fits(n)) throw new IOException("Tabla de CRC inconsistente con la longitud del payload");
+        byte[] dst = new byte[n];
+        boolean async = n >= ASYNC_MIN;
+        List<CompletableFuture<Void>> pending = async ? new ArrayList<>() : null;
+        for (int k = 0; k < t.crcs.length; k++) {
+            int off = k * t.blockSize, len = Math.min(t.blockSize, n - off);
+            if (in.readNBytes(dst, off, len) != len) throw new EOFException("Archivo truncado en el bloque " + k);
+            if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Operación cancelada");
+            int block = k;
+            if (async) pending.add(CompletableFuture.runAsync(() -> check(dst, block, off, len, t), POOL));
+            else {
+                try { check(dst, block, off, len, t); }
+                catch (CorruptBlock cb) { throw new IOException(cb.getMessage(), cb); }
+            }
+        }
+        if (async) {
+            try {
+                CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException e) {
+                // Informar el primer bloque dañado (en orden), no el primero en terminar.
+                for (CompletableFuture<Void> f : pending) {
+                    try { f.join(); } catch (CompletionException ce) {
+                        if (ce.getCause() instanceof CorruptBlock cb) throw new IOException(cb.getMessage(), cb);
+                        throw new IOException("Error al verificar CRC32C: " + ce.getCause(), ce.getCause());
+                    }
+                }
+            }
+        }
+        return dst;
+    }
+
+    private static void check(byte[] data, int block, int off, int len, Table t) {
+        int got = crc(data, off, len);
+        if (got != t.crcs[block]) throw new CorruptBlock(block, off, t.crcs[block], got);
+    }
+
+    /** Bloque dañado: se propaga como IOException desde readVerified. */
+    static final class CorruptBlock extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        CorruptBlock(int block, int off, int expected, int got) {
+            super(String.format("Bloque dañado #%d (offset %d del payload): CRC32C esperado %08x, leído %08x",
+                    block, off, expected, got));
+        }
+    }
+
+    static int crc(byte[] b, int off, int len) {
+        CRC32C c = new CRC32C();
+        c.update(b, off, len);
+        return (int) c.getValue();
+    }
+
+    private static byte[] readFully(InputStream in, int n) throws IOException {
+        byte[] b = in.readNBytes(n);
+        if (b.length != n) throw new EOFException("Tabla de CRC truncada");
+        return b;
+    }
+}
@@ -0,0 +1,57 @@
+package archivos;
+
+/**
+ * Entropía de orden 0 por bloque (bits por byte) y clasificación de bloques.
+ *
+ * El histograma cuenta en 4 tablas intercaladas para que bytes repetidos seguidos
+ * no serialicen el incremento sobre el mismo contador; el logaritmo se calcula una
+ * vez por símbolo presente (≤256 por bloque), no por byte.
+ */
+public final class BlockEntropy {
+    private BlockEntropy(){}
+
+    /** LOW: texto/datos muy redundantes; MEDIUM: binario típico; HIGH: ya comprimido o aleatorio. */
+    public enum Kind { LOW, MEDIUM, HIGH }
+
+    /** Por encima de esto el bloque no vale la pena comprimirlo (~8 es aleatorio). */
+    public static final double HIGH_BITS = 7.8;
+    static final double LOW_BITS = 6.0;
+
+    private static final double INV_LN2 = 1.0 / Math.log(2);
+
+    /** Entropía de data[off, off+len) en bits por byte (0 si len == 0). */
+    public static double bitsPerByte(byte[] data, int off, int len) {
+        if (len <= 0) return 0.0;
+        int[] c0 = new int[256], c1 = new int[256], c2 = new int[256], c3 = new int[256];
+        int i = off, end = off + len, end4 = off + (len & ~3);
+        for (; i < end4; i += 4) {
+            c0[data[i] & 0xFF]++;
+            c1[data[i + 1] & 0xFF]++;
+            c2[data[i + 2] & 0xFF]++;
+            c3[data[i + 3] & 0xFF]++;
+        }
+        for (; i < end; i++) c0[data[i] & 0xFF]++;
+        // H = log2(n) - (1/n) * sum(c * log2(c))
+        double sum = 0.0;
+        for (int s = 0; s < 256; s++) {
+            int c = c0[s] + c1[s] + c2[s] + c3[s];
+            if (c > 1) sum += c * Math.log(c);
+        }
+        return (Math.log(len) - sum / len) * INV_LN2;
+    }
+
+    public static Kind classify(double bits) {
+        return bits > HIGH_BITS ? Kind.HIGH : bits < LOW_BITS ? Kind.LOW : Kind.MEDIUM;
+    }
+
+    /** Clase de cada bloque de blockSize (el último puede ser más corto). */
+    public static Kind[] classify(byte[] data, int blockSize) {
+        int count = (int) ((data.length + (long) blockSize - 1) / blockSize);
+        Kind[] kinds = new Kind[count];
+        for (int b = 0; b < count; b++) {
+            int off = b * blockSize;
+            kinds[b] = classify(bitsPerByte(data, off, Math.min(blockSize, data.length - off)));
+        }
+        return kinds;
+    }
+}
@@ -0,0 +1,93 @@
+package archivos;
+
+import compressor.Capabilities.RatioClass;
+import compressor.CompressorStrategy;
+
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Perfiles de compresión: qué estrategias se prueban, con qué esfuerzo y cuánto se
+ * verifica. BALANCED reproduce el comportamiento histórico.
+ *
+ * Por defecto: -Dsfe.profile=FAST|BALANCED|MAX|COLD (BALANCED si no se indica).
+ */
+public enum CompressionProfile {
+    /** Latencia: el códec más rápido que pase el umbral (LZ4, si no DEFLATE 1); alta entropía va directo a STORED; sin verificación extra. */
+    FAST(false, Deflater.BEST_SPEED, Deflater.BEST_SPEED, 0, false, true, true, true, RatioClass.HIGH,
+            256 * 1024, Verify.NONE, ContentDigest.Kind.MURMUR3_128),
+    /** LZSS + DEFLATE 9; archivos grandes o de alta entropía con DEFLATE 1; verifica LZSS. */
+    BALANCED(true, Deflater.BEST_COMPRESSION, Deflater.BEST_SPEED, 4096, true, true, true, false, RatioClass.HIGH,
+            BlockChecksums.DEFAULT_BLOCK, Verify.LZSS, ContentDigest.Kind.SHA256),
+    /**
+     * Archivo: DEFLATE 9 incluso en alta entropía; prueba todos los códecs, también los de
+     * archivo (BWT en texto), en cualquier tamaño, y verifica toda salida.
+     */
+    MAX(true, Deflater.BEST_COMPRESSION, Deflater.BEST_COMPRESSION, 4096, true, false, false, false, RatioClass.ARCHIVE,
+            BlockChecksums.DEFAULT_BLOCK, Verify.ALL, ContentDigest.Kind.SHA256),
+    /**
+     * Almacenamiento en frío (se escribe una vez y casi no se lee): como MAX pero además con
+     * mezcla de contextos (CM, ~1 MB/s) y sin LZSS, al que CM siempre supera.
+     */
+    COLD(false, Deflater.BEST_COMPRESSION, Deflater.BEST_COMPRESSION, 0, true, false, false, false, RatioClass.EXTREME,
+            BlockChecksums.DEFAULT_BLOCK, Verify.ALL, ContentDigest.Kind.SHA256);
+
+    /** Qué salidas de códec se descomprimen y comparan antes de aceptarlas. */
+    public enum Verify { NONE, LZSS, ALL }
+
+    public final boolean tryLzss;
+    /** Nivel DEFLATE de la ruta normal y de la ruta rápida (archivos grandes o de alta entropía). */
+    public final int deflateLevel, fastPathLevel;
+    /** Posiciones de la ventana LZSS que se examinan por símbolo (máximo 4096). */
+    public final int lzssDepth;
+    /** Si es false, los datos de alta entropía se guardan STORED sin intentar comprimir. */
+    public final boolean probeHighEntropy;
+    /** Si es true, formatos ya comprimidos (ContentSniffer) van a STORED sin cargarlos ni probarlos. */
+    public final boolean sniff;
+    /** Si es true, CodecSelector descarta los códecs que no pagan su CPU; si no, se prueban todos. */
+    public final boolean pruneByCost;
+    /**
+     * Si es true, se prueban los códecs del más rápido al más lento (compressMBps declarado)
+     * y se queda el primero que pase el umbral, también en archivos grandes.
+     */
+    public final boolean preferSpeed;
+    /**
+     * Clase de ratio más alta que se prueba: ARCHIVE (BWT) y EXTREME (CM) son lentos. Desde
+     * ARCHIVE los archivos grandes siguen por la ruta normal en vez de DEFLATE directo.
+     */
+    public final RatioClass maxRatio;
+    /** Tamaño de bloque de la tabla CRC32C. */
+    public final int crcBlock;
+    public final Verify verify;
+    /** Digest del contenido si no se fija -Dsfe.digest. */
+    public final ContentDigest.Kind digest;
+
+    CompressionProfile(boolean tryLzss, int deflateLevel, int fastPathLevel, int lzssDepth, boolean probeHighEntropy,
+                       boolean sniff, boolean pruneByCost, boolean preferSpeed, RatioClass maxRatio, int crcBlock, Verify verify, ContentDigest.Kind digest) {
+        this.tryLzss = tryLzss;
+        this.deflateLevel = deflateLevel;
+        this.fastPathLevel = fastPathLevel;
+        this.lzssDepth = lzssDepth;
+        this.probeHighEntropy = probeHighEntropy;
+        this.sniff = sniff;
+        this.pruneByCost = pruneByCost;
+        this.preferSpeed = preferSpeed;
+        this.maxRatio = maxRatio;
+        this.crcBlock = crcBlock;
+        this.verify = verify;
+        this.digest = digest;
+    }
+
+    /** El códec con el esfuerzo de este perfil en la ruta normal (nivel DEFLATE y profundidad LZSS). */
+    public CompressorStrategy tune(CompressorStrategy c) { return c.withEffort(deflateLevel, lzssDepth); }
+
+    /** Si se prueban códecs que declaran esta clase de ratio. */
+    public boolean admits(RatioClass r) { return r.compareTo(maxRatio) <= 0; }
+
+    /** Perfil de archivo: admite códecs de clase ARCHIVE o superior. */
+    public boolean archival() { return admits(RatioClass.ARCHIVE); }
+
+    public static CompressionProfile defaultProfile() {
+        return valueOf(System.getProperty("sfe.profile", "BALANCED").toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,72 @@
+package archivos;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Catálogo de contenedores SFE1 de un árbol: solo se leen cabeceras (ContainerInfo),
+ * en paralelo, así que el costo depende de la cantidad de archivos y no de su tamaño.
+ */
+public final class ContainerCatalog {
+    private ContainerCatalog(){}
+
+    /** Totales del catálogo. Los mapas están ordenados por nombre. */
+    public static final class Summary {
+        /** Ejemplos de ilegibles que se conservan ("ruta: motivo"). */
+        public static final int MAX_SAMPLES = 10;
+
+        public long files, containers, notSfe1, unreadable, inconsistent, stored, encrypted;
+        public long compressedBytes;                                  // suma de tamaños de contenedores
+        public final Map<String, Long> byAlgorithm = new TreeMap<>();  // STORED/LZSS/DEFLATE/.../CIFRADO
+        public final Map<String, Long> byCipher = new TreeMap<>();     // AES_CTR / XOR_LCG
+        public final List<String> unreadableSamples = new ArrayList<>(); // los primeros MAX_SAMPLES
+
+        void add(Path p, ContainerInfo i) {
+            files++;
+            if (i.error() != null) {                                   // no se pudo leer: no es "otro" archivo
+                if (unreadable++ < MAX_SAMPLES) unreadableSamples.add(p + ": " + i.error());
+                return;
+            }
+            if (!i.sfe1()) { notSfe1++; return; }
+            containers++;
+            if (!i.consistent()) inconsistent++;
+            if (i.stored()) stored++;
+            if (i.encrypted()) { encrypted++; byCipher.merge(i.cipher(), 1L, Long::sum); }
+            compressedBytes += i.fileSize();
+            byAlgorithm.merge(i.algorithm(), 1L, Long::sum);
+        }
+    }
+
+    /** Recorre root (recursivo) e inspecciona cada archivo con hasta threads hilos. */
+    public static Summary scan(Path root, int threads) throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.walk(root)) {
+            files = s.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            List<ContainerInfo> infos = pool.submit(() ->
+                    files.parallelStream().map(ContainerInfo::probeQuietly).collect(Collectors.toList())).get();
+            Summary sum = new Summary();
+            for (int k = 0; k < infos.size(); k++) sum.add(files.get(k), infos.get(k));
+            return sum;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Catálogo cancelado");
+        } catch (ExecutionException e) {
+            throw new IOException("Error al catalogar: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package archivos;
+
+import compressor.AlgorithmId;
+import compressor.CompressorStrategy;
+import compressor.StrategyRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Inspección de un contenedor SFE1 leyendo solo la cabecera (unas pocas lecturas
+ * posicionales de pocos bytes, sin importar el tamaño del archivo). Ver FileCompressor
+ * para el formato.
+ *
+ * @param sfe1          MAGIC "SFE1" presente
+ * @param flags         byte FLAGS crudo
+ * @param payloadLength LEN declarado en la cabecera
+ * @param fileSize      tamaño real del archivo
+ * @param algorithm     STORED, LZSS, DEFLATE, EXTERNAL, BWT, CM (o el nombre del plugin), DESCONOCIDO, o CIFRADO si el
+ *                      marcador va dentro del flujo cifrado
+ * @param digest        longitud original y digest (sección DIGEST); null si no hay o si
+ *                      está cifrada (ver FileCompressor.storedDigest)
+ * @param error         motivo por el que el archivo no se pudo inspeccionar (cabecera truncada, o
+ *                      error de lectura en probeQuietly); null si se leyó
+ */
+public record ContainerInfo(boolean sfe1, int flags, int payloadLength, long fileSize, String algorithm,
+                            ContentDigest.Section digest, String error) {
+
+    // Bits de FLAGS (FileCompressor usa las mismas constantes)
+    static final int STORED = 0b0001, ENCRYPTED = 0b0010, AES = 0b0100, CHECK = 0b1000, DIGEST = 0b1_0000, BLOCKCRC = 0b10_0000,
+                     FILTER = 0b100_0000;
+    static final int HEADER_LEN = 9;
+    private static final int PROBE_LEN = 64; // cabecera + sección DIGEST más grande
+
+    public boolean stored()    { return (flags & STORED) != 0; }
+    public boolean encrypted() { return (flags & ENCRYPTED) != 0; }
+    /** Cifrado del payload: "AES_CTR", "XOR_LCG" o null si no está cifrado. */
+    public String cipher()     { return !encrypted() ? null : (flags & AES) != 0 ? "AES_CTR" : "XOR_LCG"; }
+    /** El contenido pasó por pre-filtros antes del códec (sección FILTER, ver PreFilters). */
+    public boolean filtered()  { return (flags & FILTER) != 0; }
+    /** LEN coincide con el tamaño del archivo (un contenedor truncado no pasa). */
+    public boolean consistent() { return sfe1 && HEADER_LEN + (long) payloadLength == fileSize; }
+
+    /**
+     * Por qué el contenedor no se puede usar: error de lectura o LEN que no coincide con el
+     * tamaño (truncado). null si se leyó bien o si simplemente no es SFE1.
+     */
+    public String problem() {
+        if (error != null) return error;
+        if (sfe1 && !consistent()) return "LEN " + payloadLength + " no coincide con el tamaño " + fileSize + " (truncado)";
+        return null;
+    }
+
+    /** Lee MAGIC, FLAGS, LEN y el marcador de algoritmo. Si no es SFE1, sfe1() es false. */
+    public static ContainerInfo probe(Path p) throws IOException {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            long size = ch.size();
+            ByteBuffer b = ByteBuffer.allocate(PROBE_LEN);
+            while (b.hasRemaining() && ch.read(b, b.position()) > 0) { /* lectura posicional */ }
+            b.flip();
+            if (b.remaining() < 4 || b.get(0) != 'S' || b.get(1) != 'F' || b.get(2) != 'E' || b.get(3) != '1') {
+                return new ContainerInfo(false, 0, 0, size, null, null, null);
+            }
+            if (b.remaining() < HEADER_LEN) {
+                return new ContainerInfo(true, 0, 0, size, "DESCONOCIDO", null, "cabecera SFE1 truncada (" + size + " bytes)");
+            }
+            int flags = b.get(4) & 0xFF;
+            int len = b.getInt(5);
+            long at = HEADER_LEN;
+            ContentDigest.Section digest = null;
+            if ((flags & (DIGEST | ENCRYPTED)) == DIGEST) {
+                digest = ContentDigest.parse(b.array(), HEADER_LEN, b.remaining() - HEADER_LEN);
+                if (digest != null) at += digest.encodedLength();
+            }
+            if ((flags & (BLOCKCRC | ENCRYPTED)) == BLOCKCRC) {
+                // La tabla puede ser larga: se salta leyendo solo su COUNT.
+                ByteBuffer t = ByteBuffer.allocate(8);
+                ch.read(t, at);
+                at += (t.position() == 8) ? 8 + 4L * t.getInt(4) : len;
+            }
+            if ((flags & (FILTER | ENCRYPTED)) == FILTER) {
+                ByteBuffer c = ByteBuffer.allocate(1);
+                at += (ch.read(c, at) == 1) ? 1 + 2L * (c.get(0) & 0xFF) : len;
+            }
+            String alg;
+            if ((flags & STORED) != 0) alg = "STORED";
+            else if ((flags & ENCRYPTED) != 0) alg = "CIFRADO";
+            else if (at - HEADER_LEN >= len) alg = "LZSS";
+            else {
+                ByteBuffer m = ByteBuffer.allocate(1);
+                alg = (ch.read(m, at) == 1) ? algName(m.get(0)) : "LZSS";
+            }
+            return new ContainerInfo(true, flags, len, size, alg, digest, null);
+        }
+    }
+
+    /**
+     * Igual que probe pero sin excepciones: un archivo ilegible da sfe1() false con el motivo
+     * en error(), para que quien llama pueda informarlo (ver problem()).
+     */
+    public static ContainerInfo probeQuietly(Path p) {
+        try {
+            return probe(p);
+        } catch (IOException | RuntimeException e) {
+            return new ContainerInfo(false, 0, 0, 0, null, null, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    /** Marcador de algoritmo; 0/1 es LZSS legado sin marcador. */
+    static String algName(byte marker) {
+        int b0 = marker & 0xFF;
+        if (b0 == 0 || b0 == 1) return "LZSS";
+        AlgorithmId id = AlgorithmId.fromMarker(marker);
+        if (id != null) return id.name();
+        CompressorStrategy s = StrategyRegistry.byMarker(marker); // códec externo (plugin)
+        return (s == null) ? "DESCONOCIDO" : s.name();
+    }
+}
@@ -0,0 +1,177 @@
+package archivos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.EOFException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Digest del contenido original que se guarda en el contenedor (FLAGS bit4).
+ *
+ * Sección: ORIGLEN(8, big-endian) | ID(1) | DIGEST(32 para SHA-256, 16 para Murmur3-128)
+ *
+ * Permite verificar un respaldo comparando solo el original contra el digest (sin
+ * descomprimir) y que la descompresión se autoverifique sin releer nada.
+ */
+public final class ContentDigest {
+    private ContentDigest(){}
+
+    public enum Kind {
+        SHA256(1, 32),
+        /** MurmurHash3 x64 128 bits: no criptográfico, varias veces más rápido. */
+        MURMUR3_128(2, 16);
+
+        public final int id, length;
+        Kind(int id, int length) { this.id = id; this.length = length; }
+
+        static Kind fromId(int id) throws IOException {
+            for (Kind k : values()) if (k.id == id) return k;
+            throw new IOException("Digest desconocido: " + id);
+        }
+    }
+
+    /**
+     * Digest para archivos nuevos: -Dsfe.digest=SHA256|MURMUR3_128|NONE o, si no se fija,
+     * el del perfil. null = NONE.
+     */
+    public static Kind defaultKind(Kind profileDefault) {
+        String v = System.getProperty("sfe.digest");
+        if (v == null) return profileDefault;
+        v = v.toUpperCase(Locale.ROOT);
+        return v.equals("NONE") ? null : Kind.valueOf(v);
+    }
+
+    /** Sección leída de un contenedor. */
+    public record Section(long originalLength, Kind kind, byte[] digest) {
+        public int encodedLength() { return 9 + kind.length; }
+
+        public byte[] encode() {
+            byte[] b = new byte[encodedLength()];
+            ByteBuffer.wrap(b).putLong(originalLength).put((byte) kind.id).put(digest);
+            return b;
+        }
+
+        /** true si data tiene la longitud y el digest registrados. */
+        public boolean matches(byte[] data) {
+            return data.length == originalLength && Arrays.equals(of(kind, data), digest);
+        }
+    }
+
+    public static Section section(Kind kind, byte[] original) {
+        return new Section(original.length, kind, of(kind, original));
+    }
+
+    static Section read(InputStream in) throws IOException {
+        byte[] h = in.readNBytes(9);
+        if (h.length < 9) throw new EOFException("Sección de digest truncada");
+        ByteBuffer b = ByteBuffer.wrap(h);
+        long len = b.getLong();
+        Kind k = Kind.fromId(b.get() & 0xFF);
+        byte[] d = in.readNBytes(k.length);
+        if (d.length < k.length) throw new EOFException("Sección de digest truncada");
+        return new Section(len, k, d);
+    }
+
+    /** Parsea la sección desde un arreglo (probe de cabecera); null si no alcanza. */
+    static Section parse(byte[] b, int off, int avail) throws IOException {
+        if (avail < 9) return null;
+        ByteBuffer bb = ByteBuffer.wrap(b, off, avail);
+        long len = bb.getLong();
+        Kind k = Kind.fromId(bb.get() & 0xFF);
+        if (avail < 9 + k.length) return null;
+        byte[] d = new byte[k.length];
+        bb.get(d);
+        return new Section(len, k, d);
+    }
+
+    public static byte[] of(Kind kind, byte[] data) {
+        if (kind == Kind.SHA256) return sha256().digest(data);
+        Murmur3 m = new Murmur3();
+        m.update(data, 0, data.length);
+        return m.digest();
+    }
+
+    /** Digest de un archivo leyéndolo por bloques de 1 MB. */
+    public static byte[] of(Kind kind, Path file) throws IOException {
+        MessageDigest md = (kind == Kind.SHA256) ? sha256() : null;
+        Murmur3 m = (md == null) ? new Murmur3() : null;
+        byte[] buf = new byte[1 << 20];
+        ByteBuffer bb = ByteBuffer.wrap(buf);
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            int n;
+            while ((n = ch.read(bb.clear())) >= 0) {
+                if (md != null) md.update(buf, 0, n); else m.update(buf, 0, n);
+            }
+        }
+        return (md != null) ? md.digest() : m.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try { return MessageDigest.getInstance("SHA-256"); }
+        catch (NoSuchAlgorithmException e) { throw new IllegalStateException(e); }
+    }
+
+    /** MurmurHash3_x64_128 (semilla 0) incremental. */
+    static final class Murmur3 {
+        private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+        private static final long C1 = 0x87c37b91114253d5L, C2 = 0x4cf5ad432745937fL;
+
+        private long h1, h2, total;
+        private final byte[] tail = new byte[16];
+        private int tailLen;
+
+        void update(byte[] b, int off, int len) {
+            total += len;
+            if (tailLen > 0) {
+                int n = Math.min(16 - tailLen, len);
+                System.arraycopy(b, off, tail, tailLen, n);
+                tailLen += n; off += n; len -= n;
+                if (tailLen < 16) return;
+                block((long) LONG.get(tail, 0), (long) LONG.get(tail, 8));
+                tailLen = 0;
+            }
+            int end = off + (len & ~15);
+            for (; off < end; off += 16) block((long) LONG.get(b, off), (long) LONG.get(b, off + 8));
+            tailLen = len & 15;
+            System.arraycopy(b, off, tail, 0, tailLen);
+        }
+
+        private void block(long k1, long k2) {
+            k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+            k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        byte[] digest() {
+            long k1 = 0, k2 = 0;
+            for (int i = tailLen - 1; i >= 8; i--) k2 = (k2 << 8) | (tail[i] & 0xFF);
+            for (int i = Math.min(tailLen, 8) - 1; i >= 0; i--) k1 = (k1 << 8) | (tail[i] & 0xFF);
+            long a = h1, b = h2;
+            if (tailLen > 8) { k2 *= C2; k2 = Long.rotateLeft(k2, 33); k2 *= C1; b ^= k2; }
+            if (tailLen > 0) { k1 *= C1; k1 = Long.rotateLeft(k1, 31); k1 *= C2; a ^= k1; }
+            a ^= total; b ^= total;
+            a += b; b += a;
+            a = fmix(a); b = fmix(b);
+            a += b; b += a;
+            return ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putLong(a).putLong(b).array();
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33; k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33; k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package archivos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Detección del tipo de contenido por número mágico (primeros bytes del archivo).
+ *
+ * Reconoce formatos que ya vienen comprimidos (gzip, zip/jar/docx, png, jpeg, mp4,
+ * 7z, xz, zstd, bzip2) y contenedores SFE1 propios, leyendo solo SNIFF_LEN bytes
+ * con una lectura posicional; así se deciden STORED o SKIP sin cargar el archivo.
+ */
+public final class ContentSniffer {
+    private ContentSniffer(){}
+
+    public enum Type {
+        GZIP, ZIP, PNG, JPEG, MP4, SEVEN_ZIP, XZ, ZSTD, BZIP2, SFE1, UNKNOWN;
+
+        /** Comprimido o cifrado: volver a comprimirlo no mejora el ≥2% de THRESH. */
+        public boolean compressed() { return this != UNKNOWN; }
+    }
+
+    static final int SNIFF_LEN = 16;
+
+    private static final byte[] GZIP_M  = {0x1F, (byte) 0x8B};
+    private static final byte[] ZIP_M   = {'P', 'K', 0x03, 0x04};
+    private static final byte[] ZIP_E   = {'P', 'K', 0x05, 0x06}; // zip vacío
+    private static final byte[] PNG_M   = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+    private static final byte[] JPEG_M  = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] SEVEN_M = {'7', 'z', (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C};
+    private static final byte[] XZ_M    = {(byte) 0xFD, '7', 'z', 'X', 'Z', 0x00};
+    private static final byte[] ZSTD_M  = {0x28, (byte) 0xB5, 0x2F, (byte) 0xFD};
+    private static final byte[] BZIP2_M = {'B', 'Z', 'h'};
+    private static final byte[] SFE1_M  = {'S', 'F', 'E', '1'};
+    private static final byte[] FTYP    = {'f', 't', 'y', 'p'};
+
+    /** Tipo del archivo leyendo solo su inicio. */
+    public static Type sniff(Path p) throws IOException {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(SNIFF_LEN);
+            while (b.hasRemaining() && ch.read(b, b.position()) > 0) { /* lectura posicional */ }
+            return sniff(b.array(), b.position(), ch.size());
+        }
+    }
+
+    /** Igual que sniff pero sin excepciones: un archivo ilegible es UNKNOWN. */
+    public static Type sniffQuietly(Path p) {
+        try { return sniff(p); } catch (IOException | RuntimeException e) { return Type.UNKNOWN; }
+    }
+
+    /**
+     * Tipo según los primeros n bytes de head. fileSize valida la cabecera SFE1
+     * (LEN coherente), para no confundir un texto que empiece con "SFE1".
+     */
+    public static Type sniff(byte[] head, int n, long fileSize) {
+        if (starts(head, n, SFE1_M) && n >= ContainerInfo.HEADER_LEN) {
+            long len = ((head[5] & 0xFFL) << 24) | ((head[6] & 0xFF) << 16) | ((head[7] & 0xFF) << 8) | (head[8] & 0xFF);
+            if (ContainerInfo.HEADER_LEN + len == fileSize) return Type.SFE1;
+        }
+        if (starts(head, n, GZIP_M)) return Type.GZIP;
+        if (starts(head, n, ZIP_M) || starts(head, n, ZIP_E)) return Type.ZIP;
+        if (starts(head, n, PNG_M)) return Type.PNG;
+        if (starts(head, n, JPEG_M)) return Type.JPEG;
+        if (starts(head, n, SEVEN_M)) return Type.SEVEN_ZIP;
+        if (starts(head, n, XZ_M)) return Type.XZ;
+        if (starts(head, n, ZSTD_M)) return Type.ZSTD;
+        if (starts(head, n, BZIP2_M) && n > 3 && head[3] >= '1' && head[3] <= '9') return Type.BZIP2;
+        if (n >= 8 && regionMatches(head, 4, FTYP)) return Type.MP4; // ISO BMFF: size(4) "ftyp"
+        return Type.UNKNOWN;
+    }
+
+    private static boolean starts(byte[] h, int n, byte[] magic) {
+        return n >= magic.length && regionMatches(h, 0, magic);
+    }
+
+    private static boolean regionMatches(byte[] h, int off, byte[] magic) {
+        for (int i = 0; i < magic.length; i++) if (h[off + i] != magic[i]) return false;
+        return true;
+    }
+}
@@ -1,27 +1,74 @@
 package archivos;
 
-import crypto.Encryptor;
-import crypto.Decryptor;
+import compressor.CodecSelector;
+import compressor.CompressorStrategy;
+import compressor.StrategyRegistry;
+import crypto.AesCtr;
+import crypto.CipherMode;
+import crypto.CipherStreams;
+import crypto.StreamCipher;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32C;
 
 /**
  * Contenedor SFE1:
  *  MAGIC "SFE1"
  *  FLAGS bit0=1 => STORED (no comprimido); bit1=1 => ENCRYPTED
+ *        bit2=1 => (con bit1) cifrado AES-256-CTR; sin bit2 => XOR-LCG original
+ *        bit3=1 => (con bit1) el flujo cifrado empieza con un bloque de verificación
+ *        bit4=1 => sección DIGEST: longitud original + digest del contenido (ver ContentDigest)
+ *        bit5=1 => sección BLOCKCRC: CRC32C por bloque del payload (ver BlockChecksums)
+ *        bit6=1 => sección FILTER: pre-filtros reversibles aplicados al original antes del
+ *                  códec (ver PreFilters); se deshacen tras expandir, antes de verificar DIGEST
+ *  LEN   4 bytes big-endian: todo lo que sigue hasta el final del archivo
+ *
+ * Tras LEN va el flujo de datos: [secciones opcionales en orden de bit] + payload. En un
+ * contenedor encriptado ese flujo va cifrado (las secciones no quedan en claro).
+ * En AES-CTR el payload cifrado es SALT(16) | ITER(4) | NONCE(16) | CIPHERTEXT (ver crypto.AesCtr).
+ * Con bit3, los primeros 8 bytes del CIPHERTEXT descifran a "SFEK" + CRC32C(payload en claro):
+ * una contraseña incorrecta se rechaza tras leer esos 8 bytes, y el CRC evita expandir
+ * (o escribir como STORED) basura si la verificación pasa por casualidad. Con bit5 ese CRC
+ * se escribe en 0 y no se usa: lo reemplaza la tabla CRC32C por bloque.
+ * El cifrado se aplica al vuelo al escribir y al leer el archivo (crypto.StreamCipher),
+ * así nunca conviven en memoria el payload en claro y el cifrado.
  *
  * Si NO es STORED, el payload inicia con 1 byte marcador:
  *   'L' (0x4C) => LZSS
  *   'D' (0x44) => DEFLATE (raw)
+ *   otro       => códec del registro (compressor.StrategyRegistry: 'E' LZ4, 'B' BWT, 'C' CM o plugins)
+ *   'M' (0x4D) => MIXTO por bloques: BLOCK_SIZE(4) | COUNT(4) y por bloque
+ *                 TYPE(1) | RAWLEN(4) | LEN(4) | DATOS; TYPE 0 = en claro, 'D' = DEFLATE raw.
+ *                 Se usa cuando solo algunos bloques tienen alta entropía (ver BlockEntropy).
  * Compatibilidad hacia atrás:
  *   - Si el primer byte del payload es 0 o 1, se interpreta como LZSS antiguo (sin marcador).
+ *
+ * Perfiles (CompressionProfile FAST/BALANCED/MAX/COLD): qué estrategias se prueban, niveles
+ * DEFLATE, profundidad LZSS, tamaño de bloque CRC y verificación; BALANCED por defecto.
+ * Los códecs a probar salen de compressor.StrategyRegistry (propios + plugins ServiceLoader)
+ * y compressor.CodecSelector descarta los que no pagan su CPU (salvo en MAX y COLD). Los de
+ * clase ARCHIVE (BWT) y EXTREME (CM) solo entran si profile.maxRatio los admite, y cada códec
+ * puede declararse no apto para la entropía de la entrada (BWT solo en texto).
+ * AdaptivePolicy (opcional) evita probar lo que el historial dice que no sirve.
+ * Con profile.sniff, los formatos ya comprimidos (ContentSniffer) se guardan STORED
+ * copiando el archivo sin cargarlo (sin DIGEST ni BLOCKCRC).
+ *
+ * Cancelación: los bucles de los códecs revisan periódicamente si el hilo fue
+ * interrumpido y en ese caso lanzan InterruptedIOException (la UI usa Task.cancel(true)).
  */
 public class FileCompressor {
 
@@ -29,53 +76,165 @@ public class FileCompressor {
     private static final byte[] MAGIC = new byte[]{'S','F','E','1'};
     private static final byte ALG_LZSS = 0x4C; // 'L'
     private static final byte ALG_DEFL = 0x44; // 'D'
+    private static final byte ALG_MIXED = 0x4D; // 'M'
+    private static final int MIXED_BLOCK = 256 * 1024; // bloques de clasificación; ≥2 para considerar MIXTO
+    private static final CodecSelector SELECTOR = CodecSelector.fromSystemProperties();
+    // LZSS y DEFLATE son los del registro; el perfil fija nivel y profundidad con withEffort.
+    private static final CompressorStrategy LZSS = StrategyRegistry.byMarker(ALG_LZSS),
+                                            DEFLATE = StrategyRegistry.byMarker(ALG_DEFL);
+    private static final int FLAG_STORED = ContainerInfo.STORED, FLAG_ENCRYPTED = ContainerInfo.ENCRYPTED,
+                             FLAG_AES = ContainerInfo.AES, FLAG_CHECK = ContainerInfo.CHECK,
+                             FLAG_DIGEST = ContainerInfo.DIGEST, FLAG_BLOCKCRC = ContainerInfo.BLOCKCRC,
+                             FLAG_FILTER = ContainerInfo.FILTER;
+    private static final byte[] KCV = new byte[]{'S','F','E','K'};
+    private static final int CHECK_LEN = 8; // KCV(4) + CRC32C(4)
 
     // ====== Heurísticas de velocidad/entropía ======
     private static final int LARGE_SIZE = 32 * 1024 * 1024; // 32 MB
     private static final double THRESH = 0.98;              // si no mejora ≥2% -> STORED
 
+    // ====== Métricas (handles fijos: registrar cuesta un par de operaciones atómicas) ======
+    private static final LatencyHistogram T_READ   = Metrics.histogram("sfe_io_seconds", "phase", "read");
+    private static final LatencyHistogram T_WRITE  = Metrics.histogram("sfe_io_seconds", "phase", "write");
+    private static final LatencyHistogram T_SELECT = Metrics.histogram("sfe_select_seconds");
+    private static final LatencyHistogram T_DIG_C  = Metrics.histogram("sfe_digest_seconds", "phase", "compute");
+    private static final LatencyHistogram T_DIG_V  = Metrics.histogram("sfe_digest_seconds", "phase", "verify");
+    private static final LatencyHistogram T_FILT_F = Metrics.histogram("sfe_filter_seconds", "phase", "forward");
+    private static final LatencyHistogram T_FILT_I = Metrics.histogram("sfe_filter_seconds", "phase", "inverse");
+    private static final LatencyHistogram T_ENC    = Metrics.histogram("sfe_crypto_seconds", "cipher", "XOR_LCG", "phase", "encrypt");
+    private static final LatencyHistogram T_DEC    = Metrics.histogram("sfe_crypto_seconds", "cipher", "XOR_LCG", "phase", "decrypt");
+    private static final LatencyHistogram T_AES_E  = Metrics.histogram("sfe_crypto_seconds", "cipher", "AES_CTR", "phase", "encrypt");
+    private static final LatencyHistogram T_AES_D  = Metrics.histogram("sfe_crypto_seconds", "cipher", "AES_CTR", "phase", "decrypt");
+    private static final LatencyHistogram T_LZSS_D = Metrics.histogram("sfe_codec_seconds", "alg", "LZSS", "phase", "decompress");
+    private static final LatencyHistogram T_DEFL_F = Metrics.histogram("sfe_codec_seconds", "alg", "DEFLATE_FAST", "phase", "compress");
+    private static final LatencyHistogram T_MIX_C = Metrics.histogram("sfe_codec_seconds", "alg", "MIXED", "phase", "compress");
+    private static final LatencyHistogram T_MIX_D = Metrics.histogram("sfe_codec_seconds", "alg", "MIXED", "phase", "decompress");
+
     // ====== API PÚBLICA ======
 
-    /** Comprime el archivo con LZSS/DEFLATE y elige el mejor; si no mejora, STORED. */
+    /** Comprime con el perfil por defecto (CompressionProfile.defaultProfile()). */
     public static void compressFile(Path in, Path out) throws IOException {
-        byte[] original = Files.readAllBytes(in);
-        Result r = tryStrategies(original);
-        byte flags = (r.stored ? (byte) 1 : (byte) 0);
-        writeContainer(out, flags, r.payload);
-        log(in, out, "COMPRESS", original.length, r.payload.length);
+        compressFile(in, out, CompressionProfile.defaultProfile());
+    }
+
+    public static void compressFile(Path in, Path out, CompressionProfile profile) throws IOException {
+        compressFile(in, out, profile, AdaptivePolicy.defaultPolicy());
+    }
+
+    /**
+     * Comprime el archivo con LZSS/DEFLATE según el perfil y elige el mejor; si no mejora, STORED.
+     * Con policy != null, el historial puede mandar directo a STORED o a un solo códec.
+     */
+    public static void compressFile(Path in, Path out, CompressionProfile profile, AdaptivePolicy policy) throws IOException {
+        timed("COMPRESS", () -> {
+            if (sniffCompressed(in, profile)) {
+                long n = storeZeroCopy(in, out);
+                log(in, out, "COMPRESS", "STORED", ROUTE_SNIFF, n, n);
+                return;
+            }
+            byte[] original = read(in);
+            PreFilters.Chain filters = PreFilters.select(original);
+            Result r = tryStrategies(in, filterForward(filters, original), profile, policy);
+            if (r.stored) { r = new Result(true, original, r.route); filters = PreFilters.Chain.NONE; } // sin ganancia: original tal cual
+            byte[] digest = digestSection(original, profile);
+            byte[] crcs = BlockChecksums.of(r.payload, profile.crcBlock).encode();
+            int flags = FLAG_BLOCKCRC | (r.stored ? FLAG_STORED : 0);
+            if (digest.length > 0) flags |= FLAG_DIGEST;
+            if (!filters.isEmpty()) flags |= FLAG_FILTER;
+            writeContainer(out, (byte) flags, new byte[0], concat(concat(digest, crcs), filterSection(filters)), r.payload, null);
+            log(in, out, "COMPRESS", algName(r.stored, r.payload), r.route, original.length, r.payload.length);
+        });
     }
 
     /** Descomprime .cmp (detecta STORED, LZSS legado, LZSS marcado o DEFLATE marcado). */
     public static void decompressFile(Path in, Path out) throws IOException {
-        Container c = readContainer(in);
-        byte[] data = ((c.flags & 1) != 0) ? c.payload : expandFromMarkedOrLegacy(c.payload);
-        Files.createDirectories(out.getParent() == null ? Paths.get(".") : out.getParent());
-        Files.write(out, data);
-        log(in, out, "DECOMPRESS", c.payload.length, data.length);
+        timed("DECOMPRESS", () -> {
+            Container c = readContainer(in, null);
+            byte[] data = contentOf(c);
+            write(out, data);
+            log(in, out, "DECOMPRESS", algName((c.flags & FLAG_STORED) != 0, c.payload), null, c.payload.length, data.length);
+        });
     }
 
-    /** Comprimir y luego encriptar (elige mejor compresión; si no mejora, STORED + cifrado). */
+    /** Comprimir y luego encriptar con el cifrado por defecto (CipherMode.defaultMode()). */
     public static void compressEncrypt(Path in, Path out, String password) throws IOException {
-        byte[] original = Files.readAllBytes(in);
-        Result r = tryStrategies(original);
-        byte[] cipher = Encryptor.encrypt(r.payload, password);
+        compressEncrypt(in, out, password, CipherMode.defaultMode());
+    }
 
-        byte flags = 0b0000_0010; // ENCRYPTED
-        if (r.stored) flags |= 1; // STORED
+    public static void compressEncrypt(Path in, Path out, String password, CipherMode cipherMode) throws IOException {
+        compressEncrypt(in, out, password, cipherMode, CompressionProfile.defaultProfile());
+    }
+
+    public static void compressEncrypt(Path in, Path out, String password, CipherMode cipherMode,
+                                       CompressionProfile profile) throws IOException {
+        compressEncrypt(in, out, password, cipherMode, profile, AdaptivePolicy.defaultPolicy());
+    }
 
-        writeContainer(out, flags, cipher);
-        log(in, out, "COMPRESS+ENCRYPT", original.length, cipher.length);
+    /** Comprimir y luego encriptar (elige mejor compresión según el perfil y la política; si no mejora, STORED + cifrado). */
+    public static void compressEncrypt(Path in, Path out, String password, CipherMode cipherMode,
+                                       CompressionProfile profile, AdaptivePolicy policy) throws IOException {
+        timed("COMPRESS+ENCRYPT", () -> {
+            boolean sniffed = sniffCompressed(in, profile);
+            byte[] original = read(in);
+            PreFilters.Chain filters = sniffed ? PreFilters.Chain.NONE : PreFilters.select(original);
+            Result r = sniffed ? new Result(true, original, ROUTE_SNIFF) : tryStrategies(in, filterForward(filters, original), profile, policy);
+            if (r.stored) { r = new Result(true, original, r.route); filters = PreFilters.Chain.NONE; }
+            boolean aes = (cipherMode == CipherMode.AES_CTR);
+            byte[] prefix = aes ? AesCtr.newHeader(password) : new byte[0];
+            StreamCipher sc = aes ? AesCtr.cipher(password, prefix) : StreamCipher.lcg(password);
+            byte[] digest = digestSection(original, profile);
+            byte[] crcs = BlockChecksums.of(r.payload, profile.crcBlock).encode();
+
+            int flags = FLAG_ENCRYPTED | FLAG_CHECK | FLAG_BLOCKCRC;
+            if (aes) flags |= FLAG_AES;
+            if (r.stored) flags |= FLAG_STORED;
+            if (digest.length > 0) flags |= FLAG_DIGEST;
+            if (!filters.isEmpty()) flags |= FLAG_FILTER;
+
+            // Bloque de verificación y secciones van al inicio del flujo cifrado. El CRC del
+            // payload completo queda en 0: con BLOCKCRC lo reemplaza la tabla por bloque.
+            byte[] check = Arrays.copyOf(KCV, CHECK_LEN);
+            byte[] head = concat(check, concat(concat(digest, crcs), filterSection(filters)));
+            long t0 = System.nanoTime();
+            writeContainer(out, (byte) flags, prefix, head, r.payload, sc);
+            (aes ? T_AES_E : T_ENC).recordSince(t0); // cifrado + escritura
+            log(in, out, "COMPRESS+ENCRYPT", algName(r.stored, r.payload), r.route, original.length,
+                    prefix.length + head.length + r.payload.length);
+        });
     }
 
-    /** Desencriptar y descomprimir. */
+    /** Desencriptar y descomprimir (el cifrado se detecta por FLAGS: AES-CTR o XOR-LCG legado). */
     public static void decryptDecompress(Path in, Path out, String password) throws IOException {
-        Container c = readContainer(in);
-        if ((c.flags & 0b10) == 0) throw new IOException("El archivo no está encriptado; usa decompressFile.");
-        byte[] plain = Decryptor.decrypt(c.payload, password);
-        byte[] data = ((c.flags & 1) != 0) ? plain : expandFromMarkedOrLegacy(plain);
-        Files.createDirectories(out.getParent() == null ? Paths.get(".") : out.getParent());
-        Files.write(out, data);
-        log(in, out, "DECRYPT+DECOMPRESS", c.payload.length, data.length);
+        timed("DECRYPT+DECOMPRESS", () -> {
+            Container c = readContainer(in, password);
+            if ((c.flags & FLAG_ENCRYPTED) == 0) throw new IOException("El archivo no está encriptado; usa decompressFile.");
+            byte[] data = contentOf(c);
+            write(out, data);
+            log(in, out, "DECRYPT+DECOMPRESS", algName((c.flags & FLAG_STORED) != 0, c.payload), null, Files.size(in) - 9, data.length);
+        });
+    }
+
+    /**
+     * Restaura en memoria el contenido original de un contenedor sin escribir nada
+     * (verificación de respaldos). password solo se usa si el contenedor está encriptado.
+     */
+    public static byte[] restore(Path in, String password) throws IOException {
+        byte[][] out = new byte[1][];
+        timed("RESTORE", () -> out[0] = contentOf(readContainer(in, password)));
+        return out[0];
+    }
+
+    /**
+     * Longitud original y digest guardados en el contenedor, leyendo solo el inicio del
+     * flujo de datos (sin descomprimir). null si el contenedor no tiene sección DIGEST.
+     * password solo se usa si está encriptado.
+     */
+    public static ContentDigest.Section storedDigest(Path in, String password) throws IOException {
+        try (InputStream is = Files.newInputStream(in)) {
+            Header h = readHeader(is, Files.size(in));
+            if ((h.flags & FLAG_DIGEST) == 0) return null;
+            return ContentDigest.read(openData(is, h, password).in);
+        }
     }
 
     /** Cambia la extensión conservando la carpeta. */
@@ -90,55 +249,135 @@ public class FileCompressor {
 
     /** Estimación simple de entropía (muestra hasta 1MB). */
     private static boolean isHighEntropy(byte[] data) {
-        int n = Math.min(data.length, 1_000_000);
-        int[] freq = new int[256];
-        for (int i = 0; i < n; i++) freq[data[i] & 0xFF]++;
-        double h = 0.0;
-        for (int f : freq) if (f > 0) {
-            double p = (double) f / n;
-            h -= p * (Math.log(p) / Math.log(2));
-        }
         // ~8 bits/byte aleatorio; >7.8 lo consideramos “duro”
-        return h > 7.8;
+        return BlockEntropy.bitsPerByte(data, 0, Math.min(data.length, 1_000_000)) > BlockEntropy.HIGH_BITS;
     }
 
-    private record Result(boolean stored, byte[] payload) {}
+    /** Clasifica por bloques (visible en sfe_block_class_total); null si el archivo es chico. */
+    private static BlockEntropy.Kind[] classifyBlocks(byte[] data) {
+        if (data.length < 2L * MIXED_BLOCK) return null;
+        BlockEntropy.Kind[] kinds = BlockEntropy.classify(data, MIXED_BLOCK);
+        for (BlockEntropy.Kind k : kinds) Metrics.counter("sfe_block_class_total", "class", k.name()).inc();
+        return kinds;
+    }
+
+    /** route: nombre de la ruta de la política que produjo el resultado (va al log). */
+    private record Result(boolean stored, byte[] payload, String route) {
+        Result(boolean stored, byte[] payload) { this(stored, payload, null); }
+    }
+
+    /** Ruta registrada cuando el archivo ya venía comprimido y no se consultó la política. */
+    private static final String ROUTE_SNIFF = "SNIFF";
+
+    /**
+     * Prueba estrategias con atajos de rendimiento; si no mejora ≥2%, STORED.
+     * Solo las pruebas completas (ruta PROBE) alimentan la política.
+     */
+    private static Result tryStrategies(Path in, byte[] original, CompressionProfile p, AdaptivePolicy policy)
+            throws InterruptedIOException {
+        long t0 = System.nanoTime();
+        AdaptivePolicy.Route route = (policy == null) ? AdaptivePolicy.Route.PROBE : policy.route(in, original.length);
+        try {
+            Result r = selectStrategy(original, p, route);
+            if (policy != null && route.probe()) {
+                policy.observe(in, original.length, algName(r.stored, r.payload), r.payload.length);
+            }
+            return new Result(r.stored, r.payload, route.name());
+        } finally {
+            T_SELECT.recordSince(t0);
+        }
+    }
 
-    /** Prueba estrategias con atajos de rendimiento; si no mejora ≥2%, STORED. */
-    private static Result tryStrategies(byte[] original) {
+    private static Result selectStrategy(byte[] original, CompressionProfile p, AdaptivePolicy.Route route)
+            throws InterruptedIOException {
+        if (route == AdaptivePolicy.Route.STORED) return new Result(true, original); // historial: nunca mejora
         boolean huge = original.length >= LARGE_SIZE;
-        boolean highH = isHighEntropy(original);
+        BlockEntropy.Kind[] kinds = classifyBlocks(original);
+        int high = 0;
+        if (kinds != null) for (BlockEntropy.Kind k : kinds) if (k == BlockEntropy.Kind.HIGH) high++;
+        boolean highH = (kinds != null) ? high == kinds.length : isHighEntropy(original);
+
+        // Solo algunos bloques de alta entropía: esos en claro, el resto DEFLATE, bloque a bloque.
+        if (kinds != null && high > 0 && !highH) {
+            try {
+                long t0 = System.nanoTime();
+                byte[] mixed = mixedCompress(original, kinds, huge ? p.fastPathLevel : p.deflateLevel,
+                        p.verify == CompressionProfile.Verify.ALL);
+                T_MIX_C.recordSince(t0);
+                if (mixed.length < (int) Math.ceil(original.length * THRESH)) return new Result(false, mixed);
+            } catch (InterruptedIOException e) { throw e;
+            } catch (Exception ignored) {}
+            return new Result(true, original);
+        }
 
-        // Ruta rápida: archivo grande o muy aleatorio → DEFLATE rápido; si no mejora, STORED.
-        if (huge || highH) {
+        // Ruta rápida: archivo grande o muy aleatorio → DEFLATE (nivel del perfil); si no mejora, STORED.
+        // Con preferSpeed o en perfiles de archivo los grandes siguen por la ruta normal (sin LZSS).
+        if ((huge && !p.preferSpeed && !p.archival()) || highH) {
+            if (highH && !p.probeHighEntropy) return new Result(true, original);
             try {
-                byte[] defFast = deflateCompress(original, /*bestSpeed=*/true);
+                long t0 = System.nanoTime();
+                byte[] defFast = encode(DEFLATE.withEffort(p.fastPathLevel, p.lzssDepth), original);
+                T_DEFL_F.recordSince(t0);
+                if (p.verify == CompressionProfile.Verify.ALL && !Arrays.equals(decode(DEFLATE, defFast), original)) {
+                    return new Result(true, original);
+                }
                 byte[] marked = addMarker(ALG_DEFL, defFast);
                 if (marked.length < (int) Math.ceil(original.length * THRESH)) {
                     return new Result(false, marked);
                 }
+            } catch (InterruptedIOException e) { throw e;
             } catch (Exception ignored) {}
             return new Result(true, original);
         }
 
-        // Ruta normal: probar LZSS y DEFLATE (best compression) y elegir el mejor.
-        int bestSize = Integer.MAX_VALUE;
-        byte[] best = null;
-
-        try {
-            byte[] lz = lzssCompress(original);
-            byte[] test = lzssDecompress(lz); // verificación rápida de integridad
-            if (Arrays.equals(test, original)) {
-                byte[] m = addMarker(ALG_LZSS, lz);
-                if (m.length < bestSize) { bestSize = m.length; best = m; }
+        // Ruta normal: los códecs del registro que el perfil permite y que se declaran aptos para esta
+        // entropía, filtrados por el modelo de costo (CPU vs. almacenamiento) salvo en MAX y COLD; si el
+        // historial tiene un ganador claro, solo ese.
+        double bits = BlockEntropy.bitsPerByte(original, 0, Math.min(original.length, 1_000_000));
+        boolean lzss = p.tryLzss && !huge; // LZSS no escala a archivos grandes
+        List<CompressorStrategy> plan = new ArrayList<>();
+        for (CompressorStrategy base : StrategyRegistry.all()) {
+            CompressorStrategy c = p.tune(base);
+            byte m = c.marker();
+            if (m == ALG_LZSS && !lzss) continue;
+            if (!p.admits(c.capabilities().ratio())) continue;
+            if (!c.suits(bits)) continue;
+            plan.add(c);
+        }
+        if (!route.probe()) {
+            // Solo el ganador del historial; si hoy no está entre los candidatos (perfil, tamaño,
+            // plugin ausente) se prueban todos, como en PROBE pero sin poda.
+            List<CompressorStrategy> only = new ArrayList<>();
+            for (CompressorStrategy c : plan) if (c.name().equals(route.name())) only.add(c);
+            if (!only.isEmpty()) plan = only;
+        }
+        if (p.pruneByCost && route.probe()) {
+            List<CompressorStrategy> kept = SELECTOR.plan(plan, original.length, bits);
+            for (CompressorStrategy c : plan) {
+                if (!kept.contains(c)) Metrics.counter("sfe_codec_pruned_total", "alg", c.name()).inc();
             }
-        } catch (Exception ignored) {}
+            plan = kept;
+        }
+        if (p.preferSpeed) {
+            plan = new ArrayList<>(plan);
+            plan.sort(Comparator.comparingDouble((CompressorStrategy c) -> c.capabilities().compressMBps()).reversed());
+        }
 
-        try {
-            byte[] df = deflateCompress(original, /*bestSpeed=*/false);
-            byte[] m = addMarker(ALG_DEFL, df);
-            if (m.length < bestSize) { bestSize = m.length; best = m; }
-        } catch (Exception ignored) {}
+        // Entre las salidas se elige por costo restante (restauraciones + almacenamiento) o, sin poda, por tamaño.
+        double bestScore = Double.MAX_VALUE;
+        byte[] best = null;
+        int thresh = (int) Math.ceil(original.length * THRESH);
+        for (CompressorStrategy c : plan) {
+            byte[] m;
+            try {
+                m = tryCodec(c, original, p);
+            } catch (InterruptedIOException e) { throw e;
+            } catch (Exception ignored) { m = null; }
+            if (m == null) continue;
+            double score = p.pruneByCost ? SELECTOR.retainedCost(c, original.length, m.length) : m.length;
+            if (score < bestScore) { bestScore = score; best = m; }
+            if (p.preferSpeed && m.length < thresh) break; // el más rápido que sirve
+        }
 
         if (best == null || best.length >= (int) Math.ceil(original.length * THRESH)) {
             return new Result(true, original);
@@ -146,24 +385,73 @@ public class FileCompressor {
         return new Result(false, best);
     }
 
+    /**
+     * Códec del registro ya ajustado al perfil, con su marcador; null si la verificación falla.
+     * Se verifica todo con Verify.ALL y todo salvo DEFLATE (zlib) con Verify.LZSS.
+     */
+    private static byte[] tryCodec(CompressorStrategy c, byte[] original, CompressionProfile p) throws Exception {
+        checkCancelled();
+        long t0 = System.nanoTime();
+        byte[] out = c.compress(original);
+        Metrics.histogram("sfe_codec_seconds", "alg", c.name(), "phase", "compress").recordSince(t0);
+        boolean verify = p.verify == CompressionProfile.Verify.ALL
+                || (p.verify == CompressionProfile.Verify.LZSS && c.marker() != ALG_DEFL);
+        if (verify) {
+            t0 = System.nanoTime();
+            boolean ok = Arrays.equals(c.decompress(out), original);
+            Metrics.histogram("sfe_codec_seconds", "alg", c.name(), "phase", "verify").recordSince(t0);
+            if (!ok) return null;
+        }
+        return addMarker(c.marker(), out);
+    }
+
     // ====== Expansión según marcador/legado ======
 
     private static byte[] expandFromMarkedOrLegacy(byte[] payload) throws IOException {
+        long t0 = System.nanoTime();
+        byte[] data = expand(payload);
+        byte m = payload.length > 0 ? payload[0] : 0;
+        CompressorStrategy c = (m == ALG_MIXED) ? null : StrategyRegistry.byMarker(m);
+        if (c != null) Metrics.histogram("sfe_codec_seconds", "alg", c.name(), "phase", "decompress").recordSince(t0);
+        else (m == ALG_MIXED ? T_MIX_D : T_LZSS_D).recordSince(t0); // sin marcador: LZSS antiguo
+        return data;
+    }
+
+    private static byte[] expand(byte[] payload) throws IOException {
         if (payload.length == 0) return payload;
         int b0 = payload[0] & 0xFF;
         if (b0 == 0 || b0 == 1) {
             // LZSS antiguo (sin marcador, tu formato previo)
-            return lzssDecompress(payload);
-        }
-        if (payload[0] == ALG_LZSS) {
-            return lzssDecompress(Arrays.copyOfRange(payload, 1, payload.length));
-        } else if (payload[0] == ALG_DEFL) {
-            return deflateDecompress(Arrays.copyOfRange(payload, 1, payload.length));
-        } else {
-            // Intentar compat: primero LZSS, luego DEFLATE
-            try { return lzssDecompress(payload); } catch (Exception ignore) {}
-            return deflateDecompress(payload);
+            return decode(LZSS, payload);
         }
+        if (payload[0] == ALG_MIXED) return mixedDecompress(payload);
+        CompressorStrategy c = StrategyRegistry.byMarker(payload[0]);
+        if (c != null) return decode(c, Arrays.copyOfRange(payload, 1, payload.length));
+        // Intentar compat: primero LZSS, luego DEFLATE
+        try { return decode(LZSS, payload); } catch (InterruptedIOException e) { throw e; } catch (Exception ignore) {}
+        return decode(DEFLATE, payload);
+    }
+
+    /** compress de un códec del registro; sus excepciones (salvo IOException) como IOException. */
+    private static byte[] encode(CompressorStrategy c, byte[] data) throws IOException {
+        try {
+            return c.compress(data);
+        } catch (IOException e) { throw e;
+        } catch (Exception e) { throw new IOException(c.name() + ": " + e.getMessage(), e); }
+    }
+
+    /** decompress de un códec del registro; un payload dañado siempre da IOException. */
+    private static byte[] decode(CompressorStrategy c, byte[] payload) throws IOException {
+        try {
+            return c.decompress(payload);
+        } catch (IOException e) { throw e;
+        } catch (Exception e) { throw new IOException(c.name() + " inválido: " + e.getMessage(), e); }
+    }
+
+    /** Nombre del algoritmo para el log: STORED, LZSS (marcado o legado), DEFLATE. */
+    private static String algName(boolean stored, byte[] payload) {
+        if (stored) return "STORED";
+        return (payload.length == 0) ? "LZSS" : ContainerInfo.algName(payload[0]);
     }
 
     private static byte[] addMarker(byte marker, byte[] data) {
@@ -175,140 +463,329 @@ public class FileCompressor {
 
     // ====== Contenedor SFE1 ======
 
-    private record Container(byte flags, byte[] payload) {}
+    private record Container(byte flags, ContentDigest.Section digest, PreFilters.Chain filters, byte[] payload) {}
+
+    /** Formato ya comprimido según su número mágico (si el perfil lo permite). */
+    private static boolean sniffCompressed(Path in, CompressionProfile profile) {
+        if (!profile.sniff) return false;
+        ContentSniffer.Type t = ContentSniffer.sniffQuietly(in);
+        if (!t.compressed()) return false;
+        Metrics.counter("sfe_sniffed_total", "type", t.name()).inc();
+        return true;
+    }
 
-    private static void writeContainer(Path out, byte flags, byte[] payload) throws IOException {
+    /**
+     * Contenedor STORED sin pasar el contenido por el heap: cabecera y luego
+     * FileChannel.transferTo (sin DIGEST ni BLOCKCRC, que obligarían a leerlo).
+     * Devuelve el tamaño del payload.
+     */
+    private static long storeZeroCopy(Path in, Path out) throws IOException {
         Files.createDirectories(out.getParent() == null ? Paths.get(".") : out.getParent());
-        try (OutputStream os = Files.newOutputStream(out)) {
-            os.write(MAGIC);
-            os.write(flags);
-            int len = payload.length;
-            os.write((len >>> 24) & 0xFF);
-            os.write((len >>> 16) & 0xFF);
-            os.write((len >>> 8) & 0xFF);
-            os.write(len & 0xFF);
-            os.write(payload);
+        long t0 = System.nanoTime();
+        try (FileChannel src = FileChannel.open(in, StandardOpenOption.READ);
+             FileChannel dst = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = src.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Archivo demasiado grande para SFE1: " + in);
+            int len = (int) size;
+            ByteBuffer h = ByteBuffer.wrap(new byte[]{MAGIC[0], MAGIC[1], MAGIC[2], MAGIC[3], (byte) FLAG_STORED,
+                    (byte) (len >>> 24), (byte) (len >>> 16), (byte) (len >>> 8), (byte) len});
+            while (h.hasRemaining()) dst.write(h);
+            for (long pos = 0; pos < size; ) {
+                checkCancelled();
+                long n = src.transferTo(pos, Math.min(size - pos, 64L << 20), dst);
+                if (n <= 0) throw new IOException("transferTo no avanzó en " + in);
+                pos += n;
+            }
+            return size;
+        } finally {
+            T_WRITE.recordSince(t0);
         }
     }
 
-    private static Container readContainer(Path in) throws IOException {
-        byte[] all = Files.readAllBytes(in);
-        if (all.length < 9) throw new IOException("Archivo muy corto");
-        if (!Arrays.equals(Arrays.copyOfRange(all, 0, 4), MAGIC)) throw new IOException("MAGIC inválido (no SFE1)");
-        byte flags = all[4];
-        int len = ((all[5] & 0xFF) << 24) | ((all[6] & 0xFF) << 16) | ((all[7] & 0xFF) << 8) | (all[8] & 0xFF);
-        if (9 + len != all.length) throw new IOException("Longitud inconsistente");
-        return new Container(flags, Arrays.copyOfRange(all, 9, 9 + len));
+    /**
+     * prefix va en claro tras LEN (p.ej. cabecera AES); head (bloque de verificación y
+     * secciones) y payload forman el flujo de datos, cifrado al escribir si sc != null.
+     */
+    private static void writeContainer(Path out, byte flags, byte[] prefix, byte[] head, byte[] payload, StreamCipher sc) throws IOException {
+        Files.createDirectories(out.getParent() == null ? Paths.get(".") : out.getParent());
+        long t0 = System.nanoTime();
+        int len = prefix.length + head.length + payload.length;
+        byte[] h = {MAGIC[0], MAGIC[1], MAGIC[2], MAGIC[3], flags,
+                (byte) (len >>> 24), (byte) (len >>> 16), (byte) (len >>> 8), (byte) len};
+        try (OutputStream os = Files.newOutputStream(out)) {
+            os.write(h);
+            os.write(prefix);
+            OutputStream data = (sc == null) ? os : CipherStreams.output(os, sc);
+            data.write(head);
+            data.write(payload);
+        }
+        T_WRITE.recordSince(t0);
     }
 
-    // ====== LZSS ======
-    private static final int WINDOW = 4096;
-    private static final int LOOK = 18;
-    private static final int MINLEN = 4;
-
-    // Empaquetado LZSS: [flag(1)][literal: byte][ref: dist(2) len(1)]
-    // flag: 1 = literal, 0 = referencia
-    private static byte[] lzssCompress(byte[] in) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        int pos = 0;
-        while (pos < in.length) {
-            int bestDist = 0, bestLen = 0;
-            int start = Math.max(0, pos - WINDOW);
-            for (int j = start; j < pos; j++) {
-                int len = 0;
-                while (len < LOOK && pos + len < in.length && in[j + len] == in[pos + len]) len++;
-                if (len > bestLen) { bestLen = len; bestDist = pos - j; if (bestLen == LOOK) break; }
+    /**
+     * Lee el contenedor completo (descifrando al vuelo si está encriptado, en un solo
+     * arreglo) y valida el bloque de verificación.
+     */
+    private static Container readContainer(Path in, String password) throws IOException {
+        long t0 = System.nanoTime();
+        Header h;
+        ContentDigest.Section digest = null;
+        PreFilters.Chain filters = PreFilters.Chain.NONE;
+        byte[] payload;
+        try (InputStream is = Files.newInputStream(in)) {
+            h = readHeader(is, Files.size(in));
+            DataStream d = openData(is, h, password);
+            int n = d.remaining;
+            if ((h.flags & FLAG_DIGEST) != 0) {
+                digest = ContentDigest.read(d.in);
+                n -= digest.encodedLength();
+            }
+            BlockChecksums.Table crcs = null;
+            if ((h.flags & FLAG_BLOCKCRC) != 0) {
+                crcs = BlockChecksums.read(d.in, n);
+                n -= crcs.encodedLength();
+            }
+            if ((h.flags & FLAG_FILTER) != 0) {
+                filters = PreFilters.read(d.in);
+                n -= filters.encodedLength();
             }
-            if (bestLen >= MINLEN) {
-                out.write(0);
-                out.write((bestDist >>> 8) & 0xFF);
-                out.write(bestDist & 0xFF);
-                out.write(bestLen);
-                pos += bestLen;
+            if (n < 0) throw new IOException("Longitud inconsistente");
+            if (crcs != null) {
+                // Verificación incremental por bloque: reemplaza al CRC del payload completo.
+                payload = BlockChecksums.readVerified(d.in, n, crcs);
             } else {
-                out.write(1);
-                out.write(in[pos] & 0xFF);
-                pos++;
+                payload = readFully(d.in, n);
+                if ((h.flags & (FLAG_ENCRYPTED | FLAG_CHECK)) == (FLAG_ENCRYPTED | FLAG_CHECK) && crc32c(payload) != d.crc) {
+                    throw new IOException("Contraseña incorrecta o archivo dañado (CRC32C no coincide)");
+                }
+            }
+        }
+        if ((h.flags & FLAG_ENCRYPTED) == 0) T_READ.recordSince(t0);
+        else ((h.flags & FLAG_AES) != 0 ? T_AES_D : T_DEC).recordSince(t0); // lectura + descifrado
+        return new Container((byte) h.flags, digest, filters, payload);
+    }
+
+    /** Flujo de datos tras LEN: bytes que quedan y CRC32C esperado del payload (si hay bloque de verificación). */
+    private record DataStream(InputStream in, int remaining, int crc) {}
+
+    /** En claro, el flujo empieza tras LEN; encriptado, tras la cabecera AES y el bloque de verificación. */
+    private static DataStream openData(InputStream is, Header h, String password) throws IOException {
+        if ((h.flags & FLAG_ENCRYPTED) == 0) return new DataStream(is, h.len, 0);
+        if (password == null) throw new IOException("Contenedor encriptado: falta la contraseña");
+        StreamCipher sc = StreamCipher.lcg(password);
+        int n = h.len;
+        if ((h.flags & FLAG_AES) != 0) {
+            if (n < AesCtr.HEADER_LEN) throw new IOException("Sobre AES truncado");
+            sc = AesCtr.cipher(password, readFully(is, AesCtr.HEADER_LEN));
+            n -= AesCtr.HEADER_LEN;
+        }
+        InputStream dec = CipherStreams.input(is, sc);
+        int crc = 0;
+        if ((h.flags & FLAG_CHECK) != 0) {
+            if (n < CHECK_LEN) throw new IOException("Bloque de verificación truncado");
+            byte[] check = readFully(dec, CHECK_LEN);
+            if (!Arrays.equals(check, 0, 4, KCV, 0, 4)) throw new IOException("Contraseña incorrecta");
+            crc = getInt(check, 4);
+            n -= CHECK_LEN;
+        }
+        return new DataStream(dec, n, crc);
+    }
+
+    /** Expande el payload, deshace los pre-filtros y, si el contenedor trae DIGEST, verifica longitud y digest. */
+    private static byte[] contentOf(Container c) throws IOException {
+        byte[] data = ((c.flags & FLAG_STORED) != 0) ? c.payload : expandFromMarkedOrLegacy(c.payload);
+        if (!c.filters.isEmpty()) {
+            long t0 = System.nanoTime();
+            data = c.filters.inverse(data);
+            T_FILT_I.recordSince(t0);
+        }
+        if (c.digest != null) {
+            long t0 = System.nanoTime();
+            boolean ok = c.digest.matches(data);
+            T_DIG_V.recordSince(t0);
+            if (!ok) throw new IOException("El contenido restaurado no coincide con el digest " + c.digest.kind() + " del contenedor");
+        }
+        return data;
+    }
+
+    private static byte[] filterForward(PreFilters.Chain filters, byte[] original) {
+        if (filters.isEmpty()) return original;
+        long t0 = System.nanoTime();
+        byte[] b = filters.forward(original);
+        T_FILT_F.recordSince(t0);
+        return b;
+    }
+
+    /** Sección FILTER (vacía si no hay filtros). */
+    private static byte[] filterSection(PreFilters.Chain filters) {
+        return filters.isEmpty() ? new byte[0] : filters.encode();
+    }
+
+    /** Sección DIGEST del original según -Dsfe.digest o el perfil (vacía si NONE). */
+    private static byte[] digestSection(byte[] original, CompressionProfile profile) {
+        ContentDigest.Kind kind = ContentDigest.defaultKind(profile.digest);
+        if (kind == null) return new byte[0];
+        long t0 = System.nanoTime();
+        byte[] b = ContentDigest.section(kind, original).encode();
+        T_DIG_C.recordSince(t0);
+        return b;
+    }
+
+    private record Header(int flags, int len) {}
+
+    /** Lee y valida MAGIC/FLAGS/LEN; deja el stream al inicio del payload. */
+    private static Header readHeader(InputStream is, long fileSize) throws IOException {
+        if (fileSize < 9) throw new IOException("Archivo muy corto");
+        byte[] h = readFully(is, 9);
+        if (!Arrays.equals(Arrays.copyOfRange(h, 0, 4), MAGIC)) throw new IOException("MAGIC inválido (no SFE1)");
+        int len = ((h[5] & 0xFF) << 24) | ((h[6] & 0xFF) << 16) | ((h[7] & 0xFF) << 8) | (h[8] & 0xFF);
+        if (9L + len != fileSize) throw new IOException("Longitud inconsistente");
+        return new Header(h[4], len);
+    }
+
+    private static int crc32c(byte[] data) {
+        CRC32C c = new CRC32C();
+        c.update(data, 0, data.length);
+        return (int) c.getValue();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] r = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, r, a.length, b.length);
+        return r;
+    }
+
+    private static void putInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24); b[off + 1] = (byte) (v >>> 16); b[off + 2] = (byte) (v >>> 8); b[off + 3] = (byte) v;
+    }
+
+    private static int getInt(byte[] b, int off) {
+        return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+
+    private static byte[] readFully(InputStream is, int n) throws IOException {
+        byte[] b = new byte[n];
+        if (is.readNBytes(b, 0, n) != n) throw new EOFException("Archivo truncado");
+        return b;
+    }
+
+    // ===== MIXTO: bloques de alta entropía en claro, el resto DEFLATE =====
+    private static final int MIXED_ENTRY = 9; // TYPE(1) | RAWLEN(4) | LEN(4)
+
+    private static byte[] mixedCompress(byte[] in, BlockEntropy.Kind[] kinds, int level, boolean verify) throws IOException {
+        CompressorStrategy deflate = DEFLATE.withEffort(level, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(in.length / 2 + 16);
+        byte[] h = new byte[9];
+        h[0] = ALG_MIXED;
+        putInt(h, 1, MIXED_BLOCK);
+        putInt(h, 5, kinds.length);
+        out.write(h);
+        byte[] e = new byte[MIXED_ENTRY];
+        for (int b = 0; b < kinds.length; b++) {
+            checkCancelled();
+            int off = b * MIXED_BLOCK, rawLen = Math.min(MIXED_BLOCK, in.length - off);
+            byte[] raw = Arrays.copyOfRange(in, off, off + rawLen);
+            byte[] data = raw;
+            if (kinds[b] != BlockEntropy.Kind.HIGH) {
+                byte[] df = encode(deflate, raw);
+                if (df.length < (int) Math.ceil(rawLen * THRESH)
+                        && (!verify || Arrays.equals(decode(deflate, df), raw))) data = df;
             }
+            boolean stored = (data == raw);
+            Metrics.counter("sfe_block_codec_total", "codec", stored ? "STORED" : "DEFLATE").inc();
+            e[0] = stored ? 0 : ALG_DEFL;
+            putInt(e, 1, rawLen);
+            putInt(e, 5, data.length);
+            out.write(e);
+            out.write(data);
         }
         return out.toByteArray();
     }
 
-    // Descompresión LZSS optimizada (sin out.toByteArray() por iteración)
-    private static byte[] lzssDecompress(byte[] in) throws IOException {
-        byte[] out = new byte[Math.max(1024, in.length * 2)];
-        int outLen = 0;
-
-        int i = 0;
-        while (i < in.length) {
-            int flag = in[i++] & 0xFF;
-            if (flag == 1) {
-                if (i >= in.length) throw new IOException("LZSS literal fuera de rango");
-                if (outLen >= out.length) out = Arrays.copyOf(out, out.length * 2);
-                out[outLen++] = in[i++];
-            } else if (flag == 0) {
-                if (i + 2 >= in.length) throw new IOException("LZSS referencia truncada");
-                int dist = ((in[i++] & 0xFF) << 8) | (in[i++] & 0xFF);
-                int len = in[i++] & 0xFF;
-                int start = outLen - dist;
-                if (start < 0) throw new IOException("Distancia inválida en LZSS");
-                for (int k = 0; k < len; k++) {
-                    if (outLen >= out.length) out = Arrays.copyOf(out, out.length * 2);
-                    out[outLen++] = out[start + k];
-                }
+    private static byte[] mixedDecompress(byte[] p) throws IOException {
+        if (p.length < 9) throw new IOException("MIXTO inválido: cabecera truncada");
+        int count = getInt(p, 5);
+        long total = 0;
+        for (int b = 0, at = 9; b < count; b++) { // primera pasada: tamaño final exacto
+            if (at + MIXED_ENTRY > p.length) throw new IOException("MIXTO inválido: bloque #" + b + " truncado");
+            int rawLen = getInt(p, at + 1), len = getInt(p, at + 5);
+            if (rawLen < 0 || len < 0 || len > p.length) throw new IOException("MIXTO inválido: bloque #" + b);
+            total += rawLen;
+            at += MIXED_ENTRY + len;
+        }
+        if (total > Integer.MAX_VALUE - 8) throw new IOException("MIXTO inválido: tamaño " + total);
+        byte[] out = new byte[(int) total];
+        int pos = 0;
+        for (int b = 0, at = 9; b < count; b++) {
+            checkCancelled();
+            byte type = p[at];
+            int rawLen = getInt(p, at + 1), len = getInt(p, at + 5);
+            at += MIXED_ENTRY;
+            if (len < 0 || at + len > p.length) throw new IOException("MIXTO inválido: bloque #" + b + " truncado");
+            if (type == 0) {
+                if (len != rawLen) throw new IOException("MIXTO inválido: bloque #" + b + " en claro con LEN " + len);
+                System.arraycopy(p, at, out, pos, len);
+            } else if (type == ALG_DEFL) {
+                byte[] d = decode(DEFLATE, Arrays.copyOfRange(p, at, at + len));
+                if (d.length != rawLen) throw new IOException("MIXTO inválido: bloque #" + b + " expande a " + d.length);
+                System.arraycopy(d, 0, out, pos, rawLen);
             } else {
-                throw new IOException("Flag LZSS inválido: " + flag);
+                throw new IOException("MIXTO inválido: tipo de bloque " + (type & 0xFF));
             }
+            pos += rawLen;
+            at += len;
         }
-        return Arrays.copyOf(out, outLen);
+        return out;
     }
 
-    // ====== DEFLATE (raw) ======
+    // ====== E/S con métricas ======
 
-    // BEST_SPEED para archivos grandes; BEST_COMPRESSION para chicos
-    private static byte[] deflateCompress(byte[] input, boolean bestSpeed) throws IOException {
-        int level = bestSpeed ? Deflater.BEST_SPEED : Deflater.BEST_COMPRESSION;
-        Deflater def = new Deflater(level, true); // raw (sin zlib header)
-        def.setInput(input);
-        def.finish();
+    private static byte[] read(Path in) throws IOException {
+        long t0 = System.nanoTime();
+        byte[] data = Files.readAllBytes(in);
+        T_READ.recordSince(t0);
+        return data;
+    }
 
-        byte[] buf = new byte[64 * 1024];
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        while (!def.finished()) {
-            int n = def.deflate(buf);
-            if (n == 0 && def.needsInput()) break;
-            baos.write(buf, 0, n);
-        }
-        def.end();
-        return baos.toByteArray();
+    private static void write(Path out, byte[] data) throws IOException {
+        long t0 = System.nanoTime();
+        Files.createDirectories(out.getParent() == null ? Paths.get(".") : out.getParent());
+        Files.write(out, data);
+        T_WRITE.recordSince(t0);
     }
 
-    private static byte[] deflateDecompress(byte[] input) throws IOException {
-        Inflater inf = new Inflater(true); // raw
-        byte[] buf = new byte[64 * 1024];
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    @FunctionalInterface
+    private interface IoBody { void run() throws IOException; }
+
+    /** Ejecuta una operación pública midiendo latencia total, éxitos y errores por modo. */
+    private static void timed(String mode, IoBody body) throws IOException {
+        long t0 = System.nanoTime();
         try {
-            inf.setInput(input);
-            while (!inf.finished()) {
-                int n = inf.inflate(buf);
-                if (n == 0 && inf.needsInput()) break;
-                baos.write(buf, 0, n);
-            }
-        } catch (Exception e) {
-            throw new IOException("DEFLATE inválido: " + e.getMessage(), e);
+            body.run();
+            Metrics.counter("sfe_operations_total", "mode", mode).inc();
+        } catch (IOException | RuntimeException e) {
+            Metrics.counter("sfe_operation_errors_total", "mode", mode).inc();
+            throw e;
         } finally {
-            inf.end();
+            Metrics.histogram("sfe_operation_seconds", "mode", mode).recordSince(t0);
         }
-        return baos.toByteArray();
     }
 
-    // ====== Log (7 parámetros) ======
-    private static void log(Path in, Path out, String op, long sizeIn, long sizeOut) {
+    // ====== Cancelación cooperativa ======
+
+    private static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Operación cancelada");
+    }
+
+    // ====== Log (7 parámetros) + bytes por modo/algoritmo ======
+    private static void log(Path in, Path out, String op, String alg, String route, long sizeIn, long sizeOut) {
+        Metrics.counter("sfe_bytes_in_total", "mode", op, "alg", alg).add(sizeIn);
+        Metrics.counter("sfe_bytes_out_total", "mode", op, "alg", alg).add(sizeOut);
         try {
             double ratio = (sizeIn == 0) ? 0.0 : (double) sizeOut / (double) sizeIn;
-            String timestamp = LocalDateTime.now().toString();
             log.OperacionLog.registrarOperacion(
-                    in.toString(), out.toString(), op, sizeIn, sizeOut, ratio, timestamp
+                    in.toString(), out.toString(), alg, sizeIn, sizeOut, ratio, op, route
             );
         } catch (Throwable t) {
             System.err.println("[LOG] " + t.getMessage());
@@ -0,0 +1,148 @@
+package archivos;
+
+import compressor.FilterRegistry;
+import compressor.PreFilter;
+import metrics.Metrics;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * Pre-filtros reversibles del contenedor (FLAGS bit6, ver compressor.PreFilter): se
+ * aplican al original antes de elegir códec y a la inversa después de expandir. El
+ * DIGEST sigue siendo del original.
+ *
+ * Sección: COUNT(1) | { ID(1) | PARAM(1) }[COUNT], en el orden en que se aplicaron.
+ *
+ * Selección: -Dsfe.filter=auto (por defecto) | none | lista como "bcj" o "delta:4,split:4".
+ * En auto se mira una muestra de los primeros 256 KB:
+ *   - un filtro cuyo detect() acepte la muestra (bcj en código x86, o un plugin);
+ *   - si no, la mejor cadena numérica por entropía de orden 0 de cada columna:
+ *     delta:1, split:w o delta:w+split:w (w = 2, 4, 8), si baja al menos GAIN_BITS bits/byte.
+ */
+public final class PreFilters {
+    private PreFilters(){}
+
+    /** Por debajo de esto no se filtra en auto (no compensa la sección). */
+    static final int MIN_SIZE = 4096;
+    private static final int SAMPLE = 256 * 1024;
+    private static final double GAIN_BITS = 1.0;
+    private static final int[] WIDTHS = {2, 4, 8};
+
+    public record Step(PreFilter filter, int param) {
+        @Override public String toString() { return filter.name() + ":" + param; }
+    }
+
+    /** Filtros aplicados, en orden. */
+    public record Chain(List<Step> steps) {
+        public static final Chain NONE = new Chain(List.of());
+
+        public boolean isEmpty() { return steps.isEmpty(); }
+
+        public int encodedLength() { return 1 + 2 * steps.size(); }
+
+        public byte[] encode() {
+            byte[] b = new byte[encodedLength()];
+            b[0] = (byte) steps.size();
+            for (int i = 0; i < steps.size(); i++) {
+                b[1 + 2 * i] = steps.get(i).filter.id();
+                b[2 + 2 * i] = (byte) steps.get(i).param;
+            }
+            return b;
+        }
+
+        public byte[] forward(byte[] data) {
+            for (Step s : steps) data = s.filter.forward(data, s.param);
+            return data;
+        }
+
+        public byte[] inverse(byte[] data) throws IOException {
+            for (int i = steps.size() - 1; i >= 0; i--) data = steps.get(i).filter.inverse(data, steps.get(i).param);
+            return data;
+        }
+
+        @Override public String toString() {
+            if (steps.isEmpty()) return "none";
+            StringJoiner j = new StringJoiner("+");
+            for (Step s : steps) j.add(s.toString());
+            return j.toString();
+        }
+    }
+
+    /** Filtros para un archivo nuevo según -Dsfe.filter (auto por defecto). */
+    public static Chain select(byte[] data) {
+        String v = System.getProperty("sfe.filter", "auto").trim().toLowerCase(Locale.ROOT);
+        Chain c = v.equals("auto") ? sniff(data) : v.equals("none") ? Chain.NONE : parseSpec(v);
+        if (!c.isEmpty()) Metrics.counter("sfe_filter_total", "filter", c.toString()).inc();
+        return c;
+    }
+
+    /** "nombre[:param],..." → cadena; IllegalArgumentException si un filtro o parámetro no existe. */
+    static Chain parseSpec(String spec) {
+        List<Step> steps = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":", 2);
+            PreFilter f = FilterRegistry.byName(kv[0]);
+            if (f == null) throw new IllegalArgumentException("Filtro desconocido: " + kv[0]);
+            int param = kv.length > 1 ? Integer.parseInt(kv[1].trim()) : f.defaultParam();
+            if (!f.accepts(param)) throw new IllegalArgumentException("Parámetro inválido para " + f.name() + ": " + param);
+            steps.add(new Step(f, param));
+        }
+        return new Chain(List.copyOf(steps));
+    }
+
+    /** Selección automática sobre una muestra del inicio (ver la documentación de la clase). */
+    static Chain sniff(byte[] data) {
+        if (data.length < MIN_SIZE) return Chain.NONE;
+        byte[] s = Arrays.copyOf(data, Math.min(data.length, SAMPLE));
+        for (PreFilter f : FilterRegistry.all()) {
+            int p = f.detect(s);
+            if (p >= 0 && f.accepts(p)) return new Chain(List.of(new Step(f, p)));
+        }
+
+        PreFilter delta = FilterRegistry.byName("delta"), split = FilterRegistry.byName("split");
+        double raw = BlockEntropy.bitsPerByte(s, 0, s.length);
+        double best = raw - GAIN_BITS;
+        List<Step> chosen = List.of();
+        double d1 = BlockEntropy.bitsPerByte(delta.forward(s, 1), 0, s.length);
+        if (d1 < best) { best = d1; chosen = List.of(new Step(delta, 1)); }
+        for (int w : WIDTHS) {
+            double cs = columnBits(split.forward(s, w), w);
+            if (cs < best) { best = cs; chosen = List.of(new Step(split, w)); }
+            double ds = columnBits(split.forward(delta.forward(s, w), w), w);
+            if (ds < best) { best = ds; chosen = List.of(new Step(delta, w), new Step(split, w)); }
+        }
+        return chosen.isEmpty() ? Chain.NONE : new Chain(chosen);
+    }
+
+    /** Entropía media de las w columnas de una muestra ya separada (cada columna es contigua). */
+    private static double columnBits(byte[] split, int w) {
+        int rows = split.length / w;
+        if (rows == 0) return 8.0;
+        double sum = 0;
+        for (int c = 0; c < w; c++) sum += BlockEntropy.bitsPerByte(split, c * rows, rows);
+        return sum / w;
+    }
+
+    static Chain read(InputStream in) throws IOException {
+        int count = in.read();
+        if (count < 0) throw new EOFException("Sección de filtros truncada");
+        byte[] b = in.readNBytes(2 * count);
+        if (b.length < 2 * count) throw new EOFException("Sección de filtros truncada");
+        List<Step> steps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PreFilter f = FilterRegistry.byId(b[2 * i]);
+            int param = b[2 * i + 1] & 0xFF;
+            if (f == null) throw new IOException("Filtro desconocido en el contenedor: id " + (b[2 * i] & 0xFF));
+            if (!f.accepts(param)) throw new IOException("Parámetro inválido para " + f.name() + ": " + param);
+            steps.add(new Step(f, param));
+        }
+        return new Chain(List.copyOf(steps));
+    }
+}
@@ -1,8 +1,15 @@
 package batch;
 
+import archivos.AdaptivePolicy;
+import archivos.CompressionProfile;
+import archivos.ContainerInfo;
+import archivos.ContentSniffer;
 import archivos.FileCompressor;
+import crypto.CipherMode;
+import metrics.Metrics;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
@@ -11,6 +18,29 @@ public final class BatchProcessor {
 
     public enum Mode { COMPRESS, COMPRESS_ENCRYPT, DECOMPRESS, DECRYPT_DECOMPRESS }
 
+    /** Estado final de cada archivo del lote. */
+    public enum Status { OK, DRY, SKIP, FAIL }
+
+    /**
+     * Observador del lote (la UI lo usa para barras de progreso y estado por archivo).
+     * Se invoca desde el hilo que ejecuta runBatch.
+     */
+    public interface Listener {
+        default void onStart(int total) {}
+        default void onFile(int index, int total, Path file, Status status, String detail) {}
+    }
+
+    /** Listener por defecto: mismo formato de consola que siempre. */
+    public static final Listener CONSOLE = new Listener() {
+        @Override public void onFile(int index, int total, Path file, Status status, String detail) {
+            switch (status) {
+                case SKIP -> System.out.println("[SKIP] " + file + " - " + detail);
+                case FAIL -> System.out.println("[FAIL] " + file + " - " + detail);
+                default   -> System.out.println(detail);
+            }
+        }
+    };
+
     public static final class BatchConfig {
         public final Path inputDir;
         public final Path outputDir;
@@ -21,6 +51,13 @@ public final class BatchProcessor {
         public boolean dryRun    = false;
 
         public String password = "";
+        public CipherMode cipher = CipherMode.defaultMode();
+        public CompressionProfile profile = CompressionProfile.defaultProfile();
+        /** Usar la política adaptativa aprendida del log (AdaptivePolicy.shared()). */
+        public boolean adaptive = AdaptivePolicy.enabledByDefault();
+        /** Al comprimir, omitir (SKIP) formatos ya comprimidos detectados por número mágico. */
+        public boolean skipCompressed = false;
+        public Listener listener = CONSOLE;
         public final Set<String> includeExts = new HashSet<>();
         public final Set<String> excludeExts = new HashSet<>();
 
@@ -33,6 +70,11 @@ public final class BatchProcessor {
         public BatchConfig overwrite(boolean v) { this.overwrite = v; return this; }
         public BatchConfig dryRun(boolean v)    { this.dryRun = v; return this; }
         public BatchConfig password(String p)   { this.password = p; return this; }
+        public BatchConfig cipher(CipherMode c) { this.cipher = Objects.requireNonNull(c); return this; }
+        public BatchConfig profile(CompressionProfile p) { this.profile = Objects.requireNonNull(p); return this; }
+        public BatchConfig adaptive(boolean v)  { this.adaptive = v; return this; }
+        public BatchConfig skipCompressed(boolean v) { this.skipCompressed = v; return this; }
+        public BatchConfig listener(Listener l) { this.listener = (l == null) ? CONSOLE : l; return this; }
         public BatchConfig include(String... e) { this.includeExts.addAll(toLower(e)); return this; }
         public BatchConfig exclude(String... e) { this.excludeExts.addAll(toLower(e)); return this; }
         private static Collection<String> toLower(String... a){
@@ -44,36 +86,64 @@ public final class BatchProcessor {
 
     private BatchProcessor(){}
 
-    public static void runBatch(BatchConfig cfg) throws IOException {
+    /**
+     * Ejecuta el lote. La cancelación es cooperativa: si el hilo se interrumpe
+     * (p.ej. Task.cancel(true) en la UI) se corta entre archivos o dentro del códec
+     * y se lanza InterruptedIOException.
+     */
+    public static Summary runBatch(BatchConfig cfg) throws IOException {
         if (!Files.isDirectory(cfg.inputDir)) throw new IOException("Directorio de entrada inválido: " + cfg.inputDir);
         Files.createDirectories(cfg.outputDir);
 
-        Summary sum = new Summary();
-        Files.walkFileTree(cfg.inputDir, cfg.recursive ? EnumSet.noneOf(FileVisitOption.class) : EnumSet.noneOf(FileVisitOption.class),
+        // Primero listamos (para conocer el total y reportar progreso), luego procesamos.
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(cfg.inputDir, EnumSet.noneOf(FileVisitOption.class),
                 cfg.recursive ? Integer.MAX_VALUE : 1,
                 new SimpleFileVisitor<>() {
-                    @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                        try {
-                            processOne(file, cfg);
-                            sum.ok++;
-                        } catch (Skip s) {
-                            System.out.println("[SKIP] " + file + " - " + s.reason);
-                            sum.skip++;
-                        } catch (Exception e) {
-                            System.out.println("[FAIL] " + file + " - " + e.getMessage());
-                            sum.fail++;
-                        }
-                        sum.processed++;
+                    @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        checkCancelled();
+                        files.add(file);
                         return FileVisitResult.CONTINUE;
                     }
                 });
 
+        Summary sum = new Summary();
+        int total = files.size();
+        cfg.listener.onStart(total);
+        for (Path file : files) {
+            checkCancelled();
+            Status st;
+            String detail;
+            try {
+                Done d = processOne(file, cfg);
+                st = d.status; detail = d.detail;
+                sum.ok++;
+            } catch (Skip s) {
+                st = Status.SKIP; detail = s.reason;
+                sum.skip++;
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Lote cancelado");
+                st = Status.FAIL; detail = e.getMessage();
+                sum.fail++;
+            }
+            sum.processed++;
+            Metrics.counter("sfe_batch_files_total", "mode", cfg.mode.name(), "status", st.name()).inc();
+            cfg.listener.onFile(sum.processed, total, file, st, detail);
+        }
+
         System.out.printf("%nProcesados: %d | OK: %d | SKIP: %d | FAIL: %d%n",
                 sum.processed, sum.ok, sum.skip, sum.fail);
+        return sum;
+    }
+
+    private static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Lote cancelado");
     }
 
     // ---------- Lógica por archivo ----------
-    private static void processOne(Path src, BatchConfig cfg) throws Exception {
+    private static Done processOne(Path src, BatchConfig cfg) throws Exception {
         if (Files.isDirectory(src)) throw new Skip("es carpeta");
 
         // Filtros include/exclude por extensión (si se configuraron)
@@ -85,49 +155,62 @@ public final class BatchProcessor {
 
         switch (cfg.mode) {
             case COMPRESS -> {
-                // Evitar recomprimir contenedores
-                String n = src.getFileName().toString().toLowerCase(Locale.ROOT);
-                if (n.endsWith(".cmp") || n.endsWith(".ec")) throw new Skip("ya es contenedor (.cmp/.ec)");
+                checkCompressible(src, cfg);
                 Path out = replaceExt(dstBase, ".cmp");
                 if (!cfg.overwrite && Files.exists(out)) throw new Skip("existe y overwrite=false");
-                if (cfg.dryRun) { System.out.println("[DRY] " + src + " -> " + out); return; }
-                FileCompressor.compressFile(src, out);
-                System.out.println("[OK] COMPRESS " + src + " -> " + out);
+                if (cfg.dryRun) return new Done(Status.DRY, "[DRY] " + src + " -> " + out);
+                FileCompressor.compressFile(src, out, cfg.profile, policyOf(cfg));
+                return new Done(Status.OK, "[OK] COMPRESS " + src + " -> " + out);
             }
             case COMPRESS_ENCRYPT -> {
-                String n = src.getFileName().toString().toLowerCase(Locale.ROOT);
-                if (n.endsWith(".cmp") || n.endsWith(".ec")) throw new Skip("ya es contenedor (.cmp/.ec)");
+                checkCompressible(src, cfg);
                 Path out = replaceExt(dstBase, ".ec");
                 if (!cfg.overwrite && Files.exists(out)) throw new Skip("existe y overwrite=false");
-                if (cfg.dryRun) { System.out.println("[DRY] " + src + " -> " + out); return; }
-                FileCompressor.compressEncrypt(src, out, cfg.password);
-                System.out.println("[OK] COMPRESS+ENCRYPT " + src + " -> " + out);
+                if (cfg.dryRun) return new Done(Status.DRY, "[DRY] " + src + " -> " + out);
+                FileCompressor.compressEncrypt(src, out, cfg.password, cfg.cipher, cfg.profile, policyOf(cfg));
+                return new Done(Status.OK, "[OK] COMPRESS+ENCRYPT " + src + " -> " + out);
             }
             case DECOMPRESS -> {
                 // Ahora no dependemos de la extensión: leemos el contenedor
-                Sfe1Info info = probeSfe1(src);
-                if (!info.isSfe1) throw new Skip("no es contenedor SFE1");
-                if (info.encrypted) throw new Skip("está encriptado; usa DECRYPT_DECOMPRESS");
+                ContainerInfo info = ContainerInfo.probeQuietly(src); // solo la cabecera
+                if (info.problem() != null) throw new IOException("Contenedor dañado: " + info.problem());
+                if (!info.sfe1()) throw new Skip("no es contenedor SFE1");
+                if (info.encrypted()) throw new Skip("está encriptado; usa DECRYPT_DECOMPRESS");
                 Path out = replaceExt(dstBase, ".txt");
                 if (!cfg.overwrite && Files.exists(out)) throw new Skip("existe y overwrite=false");
-                if (cfg.dryRun) { System.out.println("[DRY] " + src + " -> " + out); return; }
+                if (cfg.dryRun) return new Done(Status.DRY, "[DRY] " + src + " -> " + out);
                 FileCompressor.decompressFile(src, out);
-                System.out.println("[OK] DECOMPRESS " + src + " -> " + out);
+                return new Done(Status.OK, "[OK] DECOMPRESS " + src + " -> " + out);
             }
             case DECRYPT_DECOMPRESS -> {
-                Sfe1Info info = probeSfe1(src);
-                if (!info.isSfe1) throw new Skip("no es contenedor SFE1");
-                if (!info.encrypted) throw new Skip("no está encriptado; usa DECOMPRESS");
+                ContainerInfo info = ContainerInfo.probeQuietly(src); // solo la cabecera
+                if (info.problem() != null) throw new IOException("Contenedor dañado: " + info.problem());
+                if (!info.sfe1()) throw new Skip("no es contenedor SFE1");
+                if (!info.encrypted()) throw new Skip("no está encriptado; usa DECOMPRESS");
                 Path out = replaceExt(dstBase, ".txt");
                 if (!cfg.overwrite && Files.exists(out)) throw new Skip("existe y overwrite=false");
-                if (cfg.dryRun) { System.out.println("[DRY] " + src + " -> " + out); return; }
+                if (cfg.dryRun) return new Done(Status.DRY, "[DRY] " + src + " -> " + out);
                 FileCompressor.decryptDecompress(src, out, cfg.password);
-                System.out.println("[OK] DECRYPT+DECOMPRESS " + src + " -> " + out);
+                return new Done(Status.OK, "[OK] DECRYPT+DECOMPRESS " + src + " -> " + out);
             }
         }
+        throw new IllegalStateException("Modo no soportado: " + cfg.mode);
     }
 
     // ---------- Helpers ----------
+    /** Evitar recomprimir contenedores (por extensión o MAGIC) y, si se pidió, formatos ya comprimidos. */
+    private static void checkCompressible(Path src, BatchConfig cfg) throws Skip {
+        String n = src.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (n.endsWith(".cmp") || n.endsWith(".ec")) throw new Skip("ya es contenedor (.cmp/.ec)");
+        ContentSniffer.Type t = ContentSniffer.sniffQuietly(src); // solo los primeros bytes
+        if (t == ContentSniffer.Type.SFE1) throw new Skip("ya es contenedor (SFE1)");
+        if (cfg.skipCompressed && t.compressed()) throw new Skip("ya comprimido (" + t + ")");
+    }
+
+    private static AdaptivePolicy policyOf(BatchConfig cfg) {
+        return cfg.adaptive ? AdaptivePolicy.shared() : null;
+    }
+
     private static boolean shouldConsiderByExt(Path src, BatchConfig cfg) {
         String ext = extOf(src).orElse("");
 
@@ -151,25 +234,11 @@ public final class BatchProcessor {
         return base.getParent()==null ? Paths.get(b+newExt) : base.getParent().resolve(b+newExt);
     }
 
-    // Lee MAGIC y FLAGS rápidamente para decidir si es SFE1 y si está encriptado.
-    private record Sfe1Info(boolean isSfe1, boolean encrypted) {}
-    private static Sfe1Info probeSfe1(Path p) {
-        try {
-            byte[] h = Files.readAllBytes(p);
-            if (h.length < 5) return new Sfe1Info(false, false);
-            if (h[0]=='S' && h[1]=='F' && h[2]=='E' && h[3]=='1') {
-                boolean enc = (h[4] & 0b0000_0010) != 0;
-                return new Sfe1Info(true, enc);
-            }
-            return new Sfe1Info(false, false);
-        } catch (Exception e) {
-            return new Sfe1Info(false, false);
-        }
-    }
-
+    private record Done(Status status, String detail) {}
     private static class Skip extends Exception {
         final String reason;
         Skip(String r){ this.reason = r; }
     }
-    private static class Summary { int processed=0, ok=0, skip=0, fail=0; }
+    /** Resumen del lote. */
+    public static final class Summary { public int processed=0, ok=0, skip=0, fail=0; }
 }
@@ -0,0 +1,241 @@
+package bench;
+
+import archivos.FileCompressor;
+import bench.Corpus.Kind;
+import compressor.Capabilities.RatioClass;
+import compressor.CompressorStrategy;
+import compressor.StrategyRegistry;
+import crypto.AesCtr;
+import crypto.Encryptor;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Microbenchmarks de códecs, contenedor y cifrado (estilo JMH, sin dependencias):
+ * warmup + medición por tiempo mínimo, resultados consumidos por un "blackhole",
+ * y por operación: throughput (MB/s sobre el tamaño original), ratio, bytes
+ * asignados (ThreadMXBean del hilo) y colecciones/tiempo de GC.
+ *
+ * Uso:
+ *   java bench.CodecBench [--kinds TEXT,LOGS,JSON,RANDOM,ZEROS,MIXED] [--sizes 1K,64K,1M,16M,256M]
+ *                         [--targets LZSS,DEFLATE,EXTERNAL,BWT,CM,XOR,AES,FILE] [--warmup-ms 500] [--measure-ms 1000]
+ *                         [--max-lzss 256K] [--max-archive 1M] [--max-file 1M] [--csv salida.csv]
+ *
+ * LZSS (búsqueda exhaustiva en ventana de 4 KB) es órdenes de magnitud más lento que el
+ * resto, y la ruta de archivo lo usa para todo lo que no sea grande o aleatorio; por
+ * defecto solo se miden hasta --max-lzss / --max-file para que la corrida termine. Lo
+ * mismo con los códecs de archivo (clase ARCHIVE/EXTREME: BWT, CM) y --max-archive.
+ *
+ * Al final se resume cada códec contra DEFLATE nivel 9 (BEST_COMPRESSION) por corpus y
+ * tamaño: ratio relativo (< 1 = comprime más) y throughput.
+ */
+public final class CodecBench {
+
+    private static volatile long sink; // "blackhole": evita que el JIT descarte resultados
+
+    @FunctionalInterface
+    interface Op { byte[] run() throws Exception; }
+
+    public record Sample(String target, String phase, Kind kind, int size, long ops, double nanosPerOp,
+                        double ratio, double allocPerOp, long gcCount, long gcMillis) {
+        double mbPerSec() { return size / (nanosPerOp / 1e9) / (1024.0 * 1024.0); }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Kind> kinds = new ArrayList<>(List.of(Kind.values()));
+        List<Integer> sizes = new ArrayList<>(List.of(1024, 64 * 1024, 1024 * 1024));
+        Set<String> targets = null;
+        long warmupMs = 500, measureMs = 1000;
+        int maxLzss = 256 * 1024;
+        int maxArchive = 1024 * 1024;
+        int maxFile = 1024 * 1024;
+        Path csv = null;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--kinds" -> { kinds.clear(); for (String k : v.split(",")) kinds.add(Kind.valueOf(k.trim().toUpperCase(Locale.ROOT))); }
+                case "--sizes" -> { sizes.clear(); for (String s : v.split(",")) sizes.add(Corpus.parseSize(s)); }
+                case "--targets" -> { targets = new HashSet<>(); for (String t : v.split(",")) targets.add(t.trim().toUpperCase(Locale.ROOT)); }
+                case "--warmup-ms" -> warmupMs = Long.parseLong(v);
+                case "--measure-ms" -> measureMs = Long.parseLong(v);
+                case "--max-lzss" -> maxLzss = Corpus.parseSize(v);
+                case "--max-archive" -> maxArchive = Corpus.parseSize(v);
+                case "--max-file" -> maxFile = Corpus.parseSize(v);
+                case "--csv" -> csv = Path.of(v);
+                default -> { System.out.println("Opción desconocida: " + args[i]); return; }
+            }
+        }
+
+        Path tmp = Files.createTempDirectory("sfe-bench");
+        if (System.getProperty("sfe.log.file") == null) {
+            System.setProperty("sfe.log.file", tmp.resolve("bench-ops.jsonl").toString());
+        }
+
+        List<Sample> all = new ArrayList<>();
+        printHeader(System.out);
+        for (Kind kind : kinds) {
+            for (int size : sizes) {
+                byte[] data = Corpus.generate(kind, size, 42L);
+
+                for (CompressorStrategy st : StrategyRegistry.all()) {
+                    String name = st.name();
+                    if (targets != null && !targets.contains(name)) continue;
+                    if (name.equals("LZSS") && size > maxLzss) continue;
+                    if (st.capabilities().ratio().compareTo(RatioClass.ARCHIVE) >= 0 && size > maxArchive) continue;
+                    byte[] packed = st.compress(data);
+                    double ratio = (double) packed.length / Math.max(1, size);
+                    all.add(print(measure(name, "compress", kind, size, ratio, warmupMs, measureMs, () -> st.compress(data))));
+                    all.add(print(measure(name, "decompress", kind, size, ratio, warmupMs, measureMs, () -> st.decompress(packed))));
+                }
+
+                if (targets == null || targets.contains("XOR")) {
+                    all.add(print(measure("XOR", "encrypt", kind, size, 1.0, warmupMs, measureMs,
+                            () -> Encryptor.encrypt(data, "clave-bench"))));
+                }
+                if (targets == null || targets.contains("AES")) {
+                    all.add(print(measure("AES", "encrypt", kind, size, 1.0, warmupMs, measureMs,
+                            () -> AesCtr.encrypt(data, "clave-bench"))));
+                }
+
+                if ((targets == null || targets.contains("FILE")) && size <= maxFile) {
+                    all.addAll(fileCase(tmp, kind, size, data, warmupMs, measureMs));
+                }
+            }
+        }
+
+        printVsDeflate(System.out, all);
+        if (csv != null) writeCsv(csv, all);
+        deleteTree(tmp);
+    }
+
+    /** Cada códec frente a DEFLATE 9 en el mismo corpus y tamaño (solo si DEFLATE se midió). */
+    private static void printVsDeflate(PrintStream out, List<Sample> all) {
+        Map<String, Sample> deflate = new HashMap<>();
+        for (Sample s : all) {
+            if (s.target.equals("DEFLATE")) deflate.put(s.phase + "|" + s.kind + "|" + s.size, s);
+        }
+        if (deflate.isEmpty()) return;
+        out.println();
+        out.println("vs DEFLATE 9 (ratio relativo < 1 = comprime más; x = throughput relativo)");
+        out.printf("%-9s %-7s %6s %8s %9s %10s %12s%n", "target", "corpus", "tamaño", "ratio", "vs ratio", "x comp", "x decomp");
+        for (Sample c : all) {
+            if (!c.phase.equals("compress") || c.target.equals("DEFLATE") || c.target.equals("FILE")) continue;
+            Sample dc = deflate.get("compress|" + c.kind + "|" + c.size);
+            if (dc == null) continue;
+            Sample d = find(all, c.target, "decompress", c.kind, c.size);
+            Sample dd = deflate.get("decompress|" + c.kind + "|" + c.size);
+            out.printf(Locale.ROOT, "%-9s %-7s %6s %8.4f %9.3f %10.3g %12s%n", c.target, c.kind, Corpus.formatSize(c.size),
+                    c.ratio, c.ratio / Math.max(1e-9, dc.ratio), c.mbPerSec() / dc.mbPerSec(),
+                    d == null || dd == null ? "-" : String.format(Locale.ROOT, "%.3g", d.mbPerSec() / dd.mbPerSec()));
+        }
+    }
+
+    private static Sample find(List<Sample> all, String target, String phase, Kind kind, int size) {
+        for (Sample s : all) {
+            if (s.target.equals(target) && s.phase.equals(phase) && s.kind == kind && s.size == size) return s;
+        }
+        return null;
+    }
+
+    /** Ruta completa compressFile/decompressFile y compressEncrypt/decryptDecompress sobre disco. */
+    private static List<Sample> fileCase(Path tmp, Kind kind, int size, byte[] data, long warmupMs, long measureMs) throws Exception {
+        Path in = tmp.resolve("in.bin"), cmp = tmp.resolve("out.cmp"), ec = tmp.resolve("out.ec"), back = tmp.resolve("back.bin");
+        Files.write(in, data);
+        FileCompressor.compressFile(in, cmp);
+        FileCompressor.compressEncrypt(in, ec, "clave-bench");
+        double ratio = (double) Files.size(cmp) / Math.max(1, size);
+        double ratioEc = (double) Files.size(ec) / Math.max(1, size);
+        List<Sample> r = new ArrayList<>();
+        r.add(print(measure("FILE", "compress", kind, size, ratio, warmupMs, measureMs,
+                () -> { FileCompressor.compressFile(in, cmp); return null; })));
+        r.add(print(measure("FILE", "decompress", kind, size, ratio, warmupMs, measureMs,
+                () -> { FileCompressor.decompressFile(cmp, back); return null; })));
+        r.add(print(measure("FILE", "compress+encrypt", kind, size, ratioEc, warmupMs, measureMs,
+                () -> { FileCompressor.compressEncrypt(in, ec, "clave-bench"); return null; })));
+        r.add(print(measure("FILE", "decrypt+decompress", kind, size, ratioEc, warmupMs, measureMs,
+                () -> { FileCompressor.decryptDecompress(ec, back, "clave-bench"); return null; })));
+        if (!Arrays.equals(Files.readAllBytes(back), data)) throw new IllegalStateException("Ida y vuelta inválida: " + kind + "/" + size);
+        return r;
+    }
+
+    /** Warmup por tiempo; luego mide al menos 1 op y hasta cumplir measureMs. */
+    static Sample measure(String target, String phase, Kind kind, int size, double ratio,
+                          long warmupMs, long measureMs, Op op) throws Exception {
+        long end = System.nanoTime() + warmupMs * 1_000_000L;
+        do { consume(op.run()); } while (System.nanoTime() < end);
+
+        com.sun.management.ThreadMXBean tmx = threadMx();
+        long tid = Thread.currentThread().threadId();
+        long alloc0 = tmx == null ? 0 : tmx.getThreadAllocatedBytes(tid);
+        long[] gc0 = gcTotals();
+        long ops = 0;
+        long t0 = System.nanoTime();
+        long stop = t0 + measureMs * 1_000_000L;
+        long now;
+        do {
+            consume(op.run());
+            ops++;
+            now = System.nanoTime();
+        } while (now < stop);
+        long alloc = tmx == null ? -1 : tmx.getThreadAllocatedBytes(tid) - alloc0;
+        long[] gc1 = gcTotals();
+        return new Sample(target, phase, kind, size, ops, (double) (now - t0) / ops, ratio,
+                alloc < 0 ? -1 : (double) alloc / ops, gc1[0] - gc0[0], gc1[1] - gc0[1]);
+    }
+
+    private static void consume(byte[] r) { if (r != null) sink += r.length + (r.length > 0 ? r[0] : 0); }
+
+    private static com.sun.management.ThreadMXBean threadMx() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t
+                && t.isThreadAllocatedMemorySupported()) {
+            t.setThreadAllocatedMemoryEnabled(true);
+            return t;
+        }
+        return null;
+    }
+
+    private static long[] gcTotals() {
+        long c = 0, ms = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            c += Math.max(0, gc.getCollectionCount());
+            ms += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{c, ms};
+    }
+
+    private static void printHeader(PrintStream out) {
+        out.printf("%-9s %-19s %-7s %6s %10s %10s %8s %14s %6s %7s%n",
+                "target", "fase", "corpus", "tamaño", "ops", "MB/s", "ratio", "alloc/op(B)", "gc", "gc_ms");
+    }
+
+    private static Sample print(Sample s) {
+        System.out.printf(Locale.ROOT, "%-9s %-19s %-7s %6s %10d %10.1f %8.4f %14.0f %6d %7d%n",
+                s.target, s.phase, s.kind, Corpus.formatSize(s.size), s.ops, s.mbPerSec(), s.ratio,
+                s.allocPerOp, s.gcCount, s.gcMillis);
+        return s;
+    }
+
+    private static void writeCsv(Path csv, List<Sample> all) throws IOException {
+        StringBuilder sb = new StringBuilder("target,phase,corpus,size,ops,ns_per_op,mb_per_s,ratio,alloc_per_op,gc_count,gc_ms\n");
+        for (Sample s : all) {
+            sb.append(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%.1f,%.3f,%.5f,%.0f,%d,%d%n",
+                    s.target, s.phase, s.kind, s.size, s.ops, s.nanosPerOp, s.mbPerSec(), s.ratio,
+                    s.allocPerOp, s.gcCount, s.gcMillis));
+        }
+        Files.writeString(csv, sb.toString());
+        System.out.println("CSV: " + csv.toAbsolutePath());
+    }
+
+    private static void deleteTree(Path p) throws IOException {
+        try (var s = Files.walk(p)) {
+            s.sorted(Comparator.reverseOrder()).forEach(x -> { try { Files.delete(x); } catch (IOException ignored) {} });
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package bench;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Corpus sintéticos deterministas (misma semilla => mismos bytes en cualquier máquina).
+ * Se usan en los benchmarks y en la compuerta de regresión.
+ */
+public final class Corpus {
+    private Corpus(){}
+
+    public enum Kind { TEXT, LOGS, JSON, RANDOM, ZEROS, MIXED }
+
+    private static final String[] WORDS = (
+            "el la de que y a en un ser se no haber por con su para como estar tener le lo todo pero más "
+          + "hacer o poder decir este ir otro ese si me ya ver porque dar cuando él muy sin vez mucho saber "
+          + "qué sobre mi alguno mismo yo también hasta año dos querer entre así primero desde grande eso "
+          + "ni nos llegar pasar tiempo ella sí día uno bien poco deber entonces poner cosa tanto hombre "
+          + "parecer nuestro tan donde ahora parte después vida quedar siempre creer hablar llevar dejar "
+          + "archivo carpeta compresión contenedor bloque datos servidor respaldo copia disco red usuario"
+    ).split(" ");
+    private static final String[] LEVELS = {"INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR"};
+    private static final String[] SERVICES = {"auth", "batch", "storage", "api", "scheduler", "backup"};
+
+    public static byte[] generate(Kind kind, int size, long seed) {
+        SplittableRandom rnd = new SplittableRandom(seed ^ ((long) kind.ordinal() << 32) ^ size);
+        return switch (kind) {
+            case TEXT   -> text(rnd, size);
+            case LOGS   -> logs(rnd, size);
+            case JSON   -> json(rnd, size);
+            case RANDOM -> random(rnd, size);
+            case ZEROS  -> new byte[size];
+            case MIXED  -> mixed(rnd, size);
+        };
+    }
+
+    /** Palabras con distribución sesgada (aprox. Zipf) y puntuación: similar a prosa. */
+    private static byte[] text(SplittableRandom rnd, int size) {
+        StringBuilder sb = new StringBuilder(size + 64);
+        int inSentence = 0;
+        while (sb.length() < size) {
+            String w = WORDS[zipf(rnd, WORDS.length)];
+            if (inSentence == 0) w = Character.toUpperCase(w.charAt(0)) + w.substring(1);
+            sb.append(w);
+            inSentence++;
+            if (inSentence > 6 && rnd.nextInt(8) == 0) { sb.append(rnd.nextInt(6) == 0 ? ".\n" : ". "); inSentence = 0; }
+            else sb.append(rnd.nextInt(12) == 0 ? ", " : " ");
+        }
+        return cut(sb, size);
+    }
+
+    private static byte[] logs(SplittableRandom rnd, int size) {
+        StringBuilder sb = new StringBuilder(size + 256);
+        long t = 1_700_000_000_000L;
+        while (sb.length() < size) {
+            t += rnd.nextInt(2000);
+            sb.append(t / 1000).append('.').append(String.format(Locale.ROOT, "%03d", t % 1000))
+              .append(' ').append(LEVELS[rnd.nextInt(LEVELS.length)])
+              .append(" [").append(SERVICES[rnd.nextInt(SERVICES.length)]).append("] req=")
+              .append(Long.toHexString(rnd.nextLong() & 0xFFFFFFL))
+              .append(" user=u").append(rnd.nextInt(500))
+              .append(" lat_ms=").append(rnd.nextInt(900))
+              .append(" msg=\"");
+            for (int i = 0, n = 3 + rnd.nextInt(6); i < n; i++) sb.append(i == 0 ? "" : " ").append(WORDS[zipf(rnd, WORDS.length)]);
+            sb.append("\"\n");
+        }
+        return cut(sb, size);
+    }
+
+    private static byte[] json(SplittableRandom rnd, int size) {
+        StringBuilder sb = new StringBuilder(size + 256);
+        sb.append("[\n");
+        int id = 0;
+        while (sb.length() < size) {
+            sb.append("  {\"id\": ").append(id++)
+              .append(", \"name\": \"").append(WORDS[zipf(rnd, WORDS.length)]).append('_').append(rnd.nextInt(1000))
+              .append("\", \"active\": ").append(rnd.nextBoolean())
+              .append(", \"score\": ").append(String.format(Locale.ROOT, "%.3f", rnd.nextDouble() * 100))
+              .append(", \"tags\": [\"").append(SERVICES[rnd.nextInt(SERVICES.length)]).append("\", \"")
+              .append(LEVELS[rnd.nextInt(LEVELS.length)].toLowerCase(Locale.ROOT)).append("\"]},\n");
+        }
+        return cut(sb, size);
+    }
+
+    private static byte[] random(SplittableRandom rnd, int size) {
+        byte[] b = new byte[size];
+        int i = 0;
+        for (; i + 8 <= size; i += 8) {
+            long v = rnd.nextLong();
+            for (int k = 0; k < 8; k++) b[i + k] = (byte) (v >>> (8 * k));
+        }
+        for (; i < size; i++) b[i] = (byte) rnd.nextInt(256);
+        return b;
+    }
+
+    /** Binario mixto: registros con enteros/floats little-endian, tramos de texto y de ruido. */
+    private static byte[] mixed(SplittableRandom rnd, int size) {
+        ByteBuffer bb = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        int counter = 0;
+        float f = 0f;
+        while (bb.remaining() > 0) {
+            int section = rnd.nextInt(10);
+            int n = Math.min(bb.remaining(), 256 + rnd.nextInt(4096));
+            if (section < 4) {                       // tabla numérica
+                while (n >= 16) {
+                    bb.putInt(counter++);
+                    bb.putInt(rnd.nextInt(1000));
+                    f += (float) rnd.nextGaussian();
+                    bb.putFloat(f);
+                    bb.putInt(0x7F000000 | rnd.nextInt(16));
+                    n -= 16;
+                }
+                while (n-- > 0) bb.put((byte) 0);
+            } else if (section < 7) {                // texto
+                byte[] t = text(rnd, n);
+                bb.put(t);
+            } else if (section < 9) {                // ruido (p.ej. blobs comprimidos)
+                bb.put(random(rnd, n));
+            } else {                                 // relleno
+                bb.put(new byte[n]);
+            }
+        }
+        return bb.array();
+    }
+
+    private static int zipf(SplittableRandom rnd, int n) {
+        double u = rnd.nextDouble();
+        return Math.min(n - 1, (int) (n * u * u * u)); // sesgo fuerte hacia los primeros
+    }
+
+    private static byte[] cut(StringBuilder sb, int size) {
+        byte[] all = sb.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[size];
+        System.arraycopy(all, 0, out, 0, Math.min(size, all.length));
+        return out;
+    }
+
+    /** "64K", "1M", "256m", "1024" -> bytes. */
+    public static int parseSize(String s) {
+        String t = s.trim().toUpperCase(Locale.ROOT);
+        int mult = 1;
+        if (t.endsWith("K")) { mult = 1024; t = t.substring(0, t.length() - 1); }
+        else if (t.endsWith("M")) { mult = 1024 * 1024; t = t.substring(0, t.length() - 1); }
+        return Math.multiplyExact(Integer.parseInt(t), mult);
+    }
+
+    public static String formatSize(long n) {
+        if (n >= 1024 * 1024 && n % (1024 * 1024) == 0) return (n / (1024 * 1024)) + "M";
+        if (n >= 1024 && n % 1024 == 0) return (n / 1024) + "K";
+        return Long.toString(n);
+    }
+}
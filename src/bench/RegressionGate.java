@@ -0,0 +1,271 @@
+package bench;
+
+import batch.BatchProcessor;
+import batch.BatchProcessor.BatchConfig;
+import batch.BatchProcessor.Mode;
+import bench.Corpus.Kind;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Compuerta de regresión de rendimiento de punta a punta.
+ *
+ * 1) Genera un árbol de corpus determinista (semilla): texto, logs, JSON, binarios
+ *    aleatorios, binario mixto y ceros en subcarpetas anidadas.
+ * 2) Corre por BatchProcessor/FileCompressor: COMPRESS, DECOMPRESS, COMPRESS_ENCRYPT,
+ *    DECRYPT_DECOMPRESS, y verifica byte a byte lo restaurado contra el original.
+ * 3) Mide throughput por fase (MB/s de datos originales, mejor de N corridas), ratio
+ *    y pico de RSS del proceso.
+ * 4) Con --record guarda la línea base; sin él compara y sale con código 1 si alguna
+ *    métrica empeora más que la tolerancia.
+ *
+ * Uso:
+ *   java bench.RegressionGate [--baseline perf-baseline.properties] [--record]
+ *        [--tolerance 0.10] [--ratio-tolerance 0.01] [--seed 42] [--total 2M] [--runs 3] [--work dir]
+ *
+ * Códigos de salida: 0 OK, 1 regresión, 2 uso/baseline faltante, 3 verificación fallida.
+ */
+public final class RegressionGate {
+
+    /** Métricas y si "más es mejor". */
+    private static final Map<String, Boolean> HIGHER_IS_BETTER = new LinkedHashMap<>();
+    static {
+        HIGHER_IS_BETTER.put("compress.mbps", true);
+        HIGHER_IS_BETTER.put("decompress.mbps", true);
+        HIGHER_IS_BETTER.put("compress_encrypt.mbps", true);
+        HIGHER_IS_BETTER.put("decrypt_decompress.mbps", true);
+        HIGHER_IS_BETTER.put("ratio", false);
+        HIGHER_IS_BETTER.put("ratio_encrypted", false);
+        HIGHER_IS_BETTER.put("peak_rss_mb", false);
+    }
+
+    private static final Kind[] KINDS = {Kind.TEXT, Kind.LOGS, Kind.JSON, Kind.RANDOM, Kind.MIXED, Kind.ZEROS};
+    private static final String[] EXTS = {"txt", "log", "json", "bin", "dat", "img"};
+
+    private static final String USO = "Uso: java bench.RegressionGate [--baseline perf-baseline.properties] [--record]"
+            + " [--tolerance 0.10] [--ratio-tolerance 0.01] [--seed 42] [--total 2M] [--runs 3] [--work dir]";
+
+    public static void main(String[] args) throws Exception {
+        System.exit(run(args));
+    }
+
+    /** Valor de la opción args[i]; falla si es el último argumento. */
+    private static String value(String[] args, int i) {
+        if (i + 1 >= args.length) throw new IllegalArgumentException("Falta el valor de " + args[i]);
+        return args[i + 1];
+    }
+
+    /** Devuelve el código de salida (ver doc de la clase). */
+    public static int run(String[] args) throws Exception {
+        Path baseline = Paths.get("perf-baseline.properties");
+        boolean record = false;
+        double tol = 0.10, ratioTol = 0.01;
+        long seed = 42;
+        long total = 2L * 1024 * 1024;
+        int runs = 3;
+        Path work = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--record" -> record = true;
+                    case "--baseline" -> baseline = Paths.get(value(args, i++));
+                    case "--tolerance" -> tol = Double.parseDouble(value(args, i++));
+                    case "--ratio-tolerance" -> ratioTol = Double.parseDouble(value(args, i++));
+                    case "--seed" -> seed = Long.parseLong(value(args, i++));
+                    case "--total" -> total = Corpus.parseSize(value(args, i++));
+                    case "--runs" -> runs = Integer.parseInt(value(args, i++));
+                    case "--work" -> work = Paths.get(value(args, i++));
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+            if (runs < 1) throw new IllegalArgumentException("--runs debe ser al menos 1");
+        } catch (NumberFormatException | ArithmeticException e) {
+            System.out.println("Valor inválido: " + e.getMessage());
+            System.out.println(USO);
+            return 2;
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println(USO);
+            return 2;
+        }
+
+        boolean tempWork = (work == null);
+        if (tempWork) work = Files.createTempDirectory("sfe-gate");
+        if (System.getProperty("sfe.log.file") == null) {
+            System.setProperty("sfe.log.file", work.resolve("gate-ops.jsonl").toString());
+        }
+
+        try {
+            Path corpus = work.resolve("corpus");
+            deleteTree(corpus);
+            long origBytes = generateTree(corpus, seed, total);
+            System.out.printf("Corpus: %s (%d bytes, semilla %d)%n", corpus, origBytes, seed);
+
+            Map<String, Double> m = new LinkedHashMap<>();
+            double[] best = new double[4];
+            for (int r = 0; r < runs; r++) {
+                Path cmp = work.resolve("cmp"), rest = work.resolve("rest"), ec = work.resolve("ec"), rest2 = work.resolve("rest_ec");
+                for (Path p : List.of(cmp, rest, ec, rest2)) deleteTree(p);
+
+                best[0] = Math.max(best[0], mbps(origBytes, timeBatch(corpus, cmp, Mode.COMPRESS)));
+                best[1] = Math.max(best[1], mbps(origBytes, timeBatch(cmp, rest, Mode.DECOMPRESS)));
+                best[2] = Math.max(best[2], mbps(origBytes, timeBatch(corpus, ec, Mode.COMPRESS_ENCRYPT)));
+                best[3] = Math.max(best[3], mbps(origBytes, timeBatch(ec, rest2, Mode.DECRYPT_DECOMPRESS)));
+
+                int bad = verify(corpus, rest) + verify(corpus, rest2);
+                if (bad > 0) {
+                    System.out.println("VERIFICACIÓN FALLIDA: " + bad + " archivo(s) no coinciden");
+                    return 3;
+                }
+                if (r == runs - 1) {
+                    m.put("ratio", (double) treeSize(cmp) / origBytes);
+                    m.put("ratio_encrypted", (double) treeSize(ec) / origBytes);
+                }
+            }
+            m.put("compress.mbps", best[0]);
+            m.put("decompress.mbps", best[1]);
+            m.put("compress_encrypt.mbps", best[2]);
+            m.put("decrypt_decompress.mbps", best[3]);
+            m.put("peak_rss_mb", peakRssMb());
+
+            if (record) {
+                Properties p = new Properties();
+                for (Map.Entry<String, Double> e : m.entrySet()) p.setProperty(e.getKey(), String.format(Locale.ROOT, "%.6f", e.getValue()));
+                p.setProperty("corpus.seed", Long.toString(seed));
+                p.setProperty("corpus.total", Long.toString(total));
+                try (OutputStream os = Files.newOutputStream(baseline)) {
+                    p.store(os, "Línea base de rendimiento (bench.RegressionGate)");
+                }
+                print(m, null, tol, ratioTol);
+                System.out.println("Línea base guardada en " + baseline.toAbsolutePath());
+                return 0;
+            }
+
+            if (!Files.exists(baseline)) {
+                print(m, null, tol, ratioTol);
+                System.out.println("No existe la línea base " + baseline + " (usa --record).");
+                return 2;
+            }
+            Properties base = new Properties();
+            try (InputStream is = Files.newInputStream(baseline)) { base.load(is); }
+            if (!Long.toString(seed).equals(base.getProperty("corpus.seed"))
+                    || !Long.toString(total).equals(base.getProperty("corpus.total"))) {
+                System.out.println("AVISO: la línea base se midió con otro corpus (seed/total); la comparación no es válida.");
+            }
+            int regressions = print(m, base, tol, ratioTol);
+            if (regressions > 0) {
+                System.out.println("REGRESIÓN: " + regressions + " métrica(s) fuera de tolerancia");
+                return 1;
+            }
+            System.out.println("OK: sin regresiones");
+            return 0;
+        } finally {
+            if (tempWork) deleteTree(work);
+        }
+    }
+
+    /** Imprime la tabla; si hay base, marca y cuenta regresiones. */
+    private static int print(Map<String, Double> m, Properties base, double tol, double ratioTol) {
+        int bad = 0;
+        System.out.printf("%n%-26s %14s %14s %9s%n", "métrica", "actual", "base", "delta");
+        for (Map.Entry<String, Double> e : m.entrySet()) {
+            String k = e.getKey();
+            double cur = e.getValue();
+            String b = (base == null) ? null : base.getProperty(k);
+            if (b == null) { System.out.printf(Locale.ROOT, "%-26s %14.4f %14s %9s%n", k, cur, "-", "-"); continue; }
+            double ref = Double.parseDouble(b);
+            double delta = (ref == 0) ? 0 : (cur - ref) / ref;
+            boolean higher = HIGHER_IS_BETTER.getOrDefault(k, true);
+            double t = k.startsWith("ratio") ? ratioTol : tol;
+            boolean regress = higher ? delta < -t : delta > t;
+            if (regress) bad++;
+            System.out.printf(Locale.ROOT, "%-26s %14.4f %14.4f %+8.1f%% %s%n", k, cur, ref, delta * 100, regress ? "<< REGRESIÓN" : "");
+        }
+        return bad;
+    }
+
+    /** Árbol determinista: nombres base únicos (fNNNN) porque DECOMPRESS restaura como .txt. */
+    static long generateTree(Path root, long seed, long total) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        long written = 0;
+        int n = 0;
+        while (written < total) {
+            int k = rnd.nextInt(KINDS.length);
+            int size = (int) Math.min(total - written, 512 + rnd.nextInt(96 * 1024));
+            Path dir = root.resolve("d" + rnd.nextInt(3));
+            if (rnd.nextBoolean()) dir = dir.resolve("s" + rnd.nextInt(2));
+            Files.createDirectories(dir);
+            Path f = dir.resolve(String.format("f%04d.%s", n++, EXTS[k]));
+            Files.write(f, Corpus.generate(KINDS[k], size, seed + n));
+            written += size;
+        }
+        return written;
+    }
+
+    private static long timeBatch(Path in, Path out, Mode mode) throws IOException {
+        BatchConfig cfg = new BatchConfig(in.toString(), out.toString(), mode)
+                .recursive(true).overwrite(true).dryRun(false).password("clave-gate")
+                .listener(new BatchProcessor.Listener() {});
+        long t0 = System.nanoTime();
+        BatchProcessor.Summary s = BatchProcessor.runBatch(cfg);
+        long dt = System.nanoTime() - t0;
+        if (s.fail > 0) throw new IOException(mode + ": " + s.fail + " archivo(s) fallaron");
+        return dt;
+    }
+
+    /** Cada original rel/fNNNN.ext debe existir como rel/fNNNN.txt con el mismo contenido. */
+    private static int verify(Path orig, Path restored) throws IOException {
+        int bad = 0;
+        try (var s = Files.walk(orig)) {
+            for (Path p : (Iterable<Path>) s.filter(Files::isRegularFile)::iterator) {
+                String rel = orig.relativize(p).toString();
+                Path r = restored.resolve(rel.substring(0, rel.lastIndexOf('.')) + ".txt");
+                if (!Files.exists(r) || Files.mismatch(p, r) != -1L) {
+                    System.out.println("  distinto: " + rel);
+                    bad++;
+                }
+            }
+        }
+        return bad;
+    }
+
+    private static double mbps(long bytes, long nanos) { return bytes / (nanos / 1e9) / (1024.0 * 1024.0); }
+
+    private static long treeSize(Path root) throws IOException {
+        try (var s = Files.walk(root)) {
+            return s.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    /** Pico de RSS (VmHWM en Linux); si no hay /proc, suma de picos de los pools de heap. */
+    static double peakRssMb() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    String kb = line.substring(6).trim().split("\\s+")[0];
+                    return Long.parseLong(kb) / 1024.0;
+                }
+            }
+        } catch (Exception ignored) {}
+        long peak = 0;
+        for (MemoryPoolMXBean mp : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (mp.getType() == MemoryType.HEAP && mp.getPeakUsage() != null) peak += mp.getPeakUsage().getUsed();
+        }
+        return peak / (1024.0 * 1024.0);
+    }
+
+    private static void deleteTree(Path p) throws IOException {
+        if (!Files.exists(p)) return;
+        try (var s = Files.walk(p)) {
+            s.sorted(Comparator.reverseOrder()).forEach(x -> { try { Files.delete(x); } catch (IOException ignored) {} });
+        }
+    }
+}
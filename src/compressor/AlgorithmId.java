@@ -4,7 +4,10 @@ package compressor;
 public enum AlgorithmId {
     LZSS((byte)0x4C),   // 'L'
     DEFLATE((byte)0x44),// 'D'
-    EXTERNAL((byte)0x45); // 'E'
+    EXTERNAL((byte)0x45), // 'E'
+    BWT((byte)0x42),      // 'B'
+    CM((byte)0x43),       // 'C'
+    MIXED((byte)0x4D);    // 'M' (bloques en claro/DEFLATE, solo en FileCompressor)
 
     public final byte marker;
     AlgorithmId(byte m){ this.marker = m; }
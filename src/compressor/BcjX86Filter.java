@@ -0,0 +1,51 @@
+package compressor;
+
+/**
+ * BCJ x86 (estilo xz): en CALL (E8) y JMP (E9) con desplazamiento rel32 convierte la
+ * dirección relativa en absoluta, así las llamadas repetidas a una misma función quedan
+ * con los mismos bytes y los LZ las encuentran.
+ *
+ * Se convierte todo E8/E9 (suma de 32 bits módulo 2^32) y se saltan sus 4 bytes: la
+ * decisión depende solo del opcode, que nunca se modifica, así el decodificador recorre
+ * exactamente las mismas posiciones. Filtrar por byte alto 00/FF no sería reversible,
+ * porque la conversión de una llamada cambia bytes que una posición anterior ya miró.
+ */
+public final class BcjX86Filter implements PreFilter {
+
+    /** Se aplica con al menos una llamada plausible cada DENSITY bytes (DENSITY_EXE con cabecera ejecutable). */
+    private static final int DENSITY = 256, DENSITY_EXE = 1024;
+
+    @Override public byte id(){ return 1; }
+    @Override public String name(){ return "bcj"; }
+
+    /** Ejecutable conocido (PE, ELF, Mach-O) con llamadas plausibles, o mucho código x86 sin cabecera. */
+    @Override public int detect(byte[] s) {
+        int calls = 0;
+        for (int i = 0; i + 5 <= s.length; i++) {
+            int op = s[i] & 0xFF, hi = s[i + 4] & 0xFF;
+            if ((op == 0xE8 || op == 0xE9) && (hi == 0 || hi == 0xFF)) { calls++; i += 4; }
+        }
+        boolean exe = s.length >= 4 && ((s[0] == 'M' && s[1] == 'Z')
+                || (s[0] == 0x7F && s[1] == 'E' && s[2] == 'L' && s[3] == 'F')
+                || ((s[0] & 0xFE) == 0xCE && (s[1] & 0xFF) == 0xFA && (s[2] & 0xFF) == 0xED && (s[3] & 0xFF) == 0xFE)
+                || ((s[0] & 0xFF) == 0xFE && (s[1] & 0xFF) == 0xED && (s[2] & 0xFF) == 0xFA && (s[3] & 0xFE) == 0xCE));
+        return (long) calls * (exe ? DENSITY_EXE : DENSITY) >= s.length && calls > 0 ? 0 : -1;
+    }
+
+    @Override public byte[] forward(byte[] data, int param) { return convert(data, true); }
+    @Override public byte[] inverse(byte[] data, int param) { return convert(data, false); }
+
+    private static byte[] convert(byte[] in, boolean encode) {
+        byte[] b = in.clone();
+        for (int i = 0; i + 5 <= b.length; i++) {
+            int op = b[i] & 0xFF;
+            if (op != 0xE8 && op != 0xE9) continue;
+            int v = (b[i + 1] & 0xFF) | (b[i + 2] & 0xFF) << 8 | (b[i + 3] & 0xFF) << 16 | b[i + 4] << 24;
+            int pc = i + 5;
+            v = encode ? v + pc : v - pc;
+            b[i + 1] = (byte) v; b[i + 2] = (byte) (v >>> 8); b[i + 3] = (byte) (v >>> 16); b[i + 4] = (byte) (v >>> 24);
+            i += 4;
+        }
+        return b;
+    }
+}
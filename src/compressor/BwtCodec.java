@@ -0,0 +1,252 @@
+package compressor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Códec de ordenamiento por bloques (estilo bzip2), en Java puro:
+ * BWT → move-to-front → corridas de ceros (RUNA/RUNB) → Huffman canónico por bloque.
+ * En texto, logs y fuentes comprime bastante más que DEFLATE a cambio de CPU.
+ *
+ * Payload: ORIGLEN(4) | BLOCK_SIZE(4) | COUNT(4) | { LEN(4) | BLOQUE }[COUNT]
+ * Bloque (flujo de bits):  PRIMARY(32) | NSYM(32) | LONGITUDES(257, un byte por símbolo) | BITS
+ *
+ * La BWT se hace sobre rotaciones cíclicas (sin centinela) ordenadas por duplicación
+ * de prefijos con counting sort: O(n log n) y unos 20 bytes de trabajo por byte de
+ * bloque. Los bloques son independientes y se comprimen/descomprimen en paralelo
+ * (ForkJoin común) desde PARALLEL_MIN.
+ */
+public final class BwtCodec {
+    private BwtCodec(){}
+
+    public static final int BLOCK = 1 << 20;
+    /** A partir de este tamaño se reparten los bloques entre hilos. */
+    static final int PARALLEL_MIN = 2 * BLOCK;
+
+    // Alfabeto tras MTF+RLE: RUNA, RUNB y los valores MTF 1..255 como 2..256.
+    private static final int RUNA = 0, RUNB = 1, SYMBOLS = 257;
+    private static final int CANCEL_STEP = 1 << 16;
+    /** Bytes mínimos de un bloque codificado: PRIMARY + NSYM + una longitud por símbolo. */
+    private static final int MIN_BLOCK = 8 + SYMBOLS;
+
+    public static byte[] compress(byte[] src) throws IOException {
+        int n = src.length, count = (n + BLOCK - 1) / BLOCK;
+        byte[][] blocks = new byte[count][];
+        Thread caller = Thread.currentThread();
+        forEachBlock(count, n, k -> {
+            int off = k * BLOCK;
+            blocks[k] = encodeBlock(src, off, Math.min(BLOCK, n - off), caller);
+        });
+        int total = 12;
+        for (byte[] b : blocks) total += 4 + b.length;
+        ByteBuffer out = ByteBuffer.allocate(total).putInt(n).putInt(BLOCK).putInt(count);
+        for (byte[] b : blocks) out.putInt(b.length).put(b);
+        return out.array();
+    }
+
+    public static byte[] decompress(byte[] p) throws IOException {
+        if (p.length < 12) throw new IOException("BWT truncado");
+        ByteBuffer in = ByteBuffer.wrap(p);
+        int n = in.getInt(), bs = in.getInt(), count = in.getInt();
+        // BLOCK_SIZE acotado a BLOCK y COUNT a los bloques que caben en el payload, antes de
+        // reservar out (n = COUNT bloques de a lo sumo BLOCK bytes cada uno).
+        if (n < 0 || bs <= 0 || bs > BLOCK || count != (int) (((long) n + bs - 1) / bs)
+                || count > (p.length - 12) / (4 + MIN_BLOCK)) {
+            throw new IOException("BWT inválido: cabecera " + n + "/" + bs + "/" + count);
+        }
+        int[] starts = new int[count], lens = new int[count];
+        for (int k = 0; k < count; k++) {
+            if (in.remaining() < 4) throw new IOException("BWT truncado en bloque " + k);
+            int len = in.getInt();
+            if (len < MIN_BLOCK || len > in.remaining()) throw new IOException("BWT inválido: bloque " + k + " fuera de rango");
+            starts[k] = in.position();
+            lens[k] = len;
+            in.position(in.position() + len);
+        }
+        if (in.hasRemaining()) throw new IOException("BWT inválido: bytes sobrantes");
+        byte[] out = new byte[n];
+        Thread caller = Thread.currentThread();
+        forEachBlock(count, n, k -> {
+            int off = k * bs;
+            decodeBlock(p, starts[k], lens[k], out, off, Math.min(bs, n - off), caller);
+        });
+        return out;
+    }
+
+    private interface BlockTask { void run(int k) throws IOException; }
+
+    /** Ejecuta la tarea por bloque, en paralelo si conviene; la primera IOException se propaga. */
+    private static void forEachBlock(int count, int n, BlockTask task) throws IOException {
+        IntStream range = IntStream.range(0, count);
+        if (n >= PARALLEL_MIN && Runtime.getRuntime().availableProcessors() > 1) range = range.parallel();
+        try {
+            range.forEach(k -> {
+                try { task.run(k); } catch (IOException e) { throw new UncheckedIOException(e); }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void checkCancel(Thread caller) throws InterruptedIOException {
+        if (caller.isInterrupted() || Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Operación cancelada");
+        }
+    }
+
+    // --- compresión ---
+
+    private static byte[] encodeBlock(byte[] src, int off, int n, Thread caller) throws InterruptedIOException {
+        int[] rot = sortRotations(src, off, n, caller);
+        byte[] last = new byte[n];
+        int primary = 0;
+        for (int i = 0; i < n; i++) {
+            int r = rot[i];
+            if (r == 0) primary = i;
+            last[i] = src[off + (r == 0 ? n - 1 : r - 1)];
+        }
+        rot = null;
+
+        // MTF + corridas de ceros en numeración biyectiva base 2 (RUNA=1, RUNB=2 por peso)
+        char[] syms = new char[n + 1];
+        int ns = 0, run = 0;
+        byte[] order = identity();
+        int[] freq = new int[SYMBOLS];
+        for (int i = 0; i < n; i++) {
+            byte b = last[i];
+            if (order[0] == b) { run++; continue; }
+            if (run > 0) { ns = emitRun(syms, ns, run, freq); run = 0; }
+            int j = 1;
+            while (order[j] != b) j++;
+            System.arraycopy(order, 0, order, 1, j);
+            order[0] = b;
+            syms[ns++] = (char) (j + 1);
+            freq[j + 1]++;
+        }
+        if (run > 0) ns = emitRun(syms, ns, run, freq);
+        checkCancel(caller);
+
+        byte[] lens = HuffmanCoder.lengths(freq);
+        int[] codes = HuffmanCoder.codes(lens);
+        HuffmanCoder.BitWriter w = new HuffmanCoder.BitWriter(8 + SYMBOLS + n / 2);
+        w.write(primary >>> 16, 16); w.write(primary, 16);
+        w.write(ns >>> 16, 16); w.write(ns, 16);
+        for (byte l : lens) w.write(l, 8);
+        for (int i = 0; i < ns; i++) w.write(codes[syms[i]], lens[syms[i]]);
+        return w.finish();
+    }
+
+    private static int emitRun(char[] syms, int ns, int run, int[] freq) {
+        for (int v = run + 1; v > 1; v >>>= 1) {
+            int s = (v & 1) == 0 ? RUNA : RUNB;
+            syms[ns++] = (char) s;
+            freq[s]++;
+        }
+        return ns;
+    }
+
+    /**
+     * Índices de inicio de las n rotaciones cíclicas de src[off..off+n), ordenadas.
+     * Rotaciones idénticas (datos periódicos) quedan en cualquier orden: da igual para la BWT.
+     */
+    static int[] sortRotations(byte[] src, int off, int n, Thread caller) throws InterruptedIOException {
+        int[] p = new int[n], c = new int[n], pn = new int[n], cn = new int[n];
+        int[] cnt = new int[Math.max(256, n)];
+        for (int i = 0; i < n; i++) cnt[src[off + i] & 0xFF]++;
+        for (int i = 1; i < 256; i++) cnt[i] += cnt[i - 1];
+        for (int i = n - 1; i >= 0; i--) p[--cnt[src[off + i] & 0xFF]] = i;
+        int classes = n == 0 ? 0 : 1;
+        for (int i = 1; i < n; i++) {
+            if (src[off + p[i]] != src[off + p[i - 1]]) classes++;
+            c[p[i]] = classes - 1;
+        }
+        for (int k = 1; k < n && classes < n; k <<= 1) {
+            // Orden por la segunda mitad: viene de p desplazado k; luego counting sort estable por la primera.
+            for (int i = 0; i < n; i++) {
+                int j = p[i] - k;
+                pn[i] = j < 0 ? j + n : j;
+            }
+            java.util.Arrays.fill(cnt, 0, classes, 0);
+            for (int i = 0; i < n; i++) cnt[c[pn[i]]]++;
+            for (int i = 1; i < classes; i++) cnt[i] += cnt[i - 1];
+            for (int i = n - 1; i >= 0; i--) p[--cnt[c[pn[i]]]] = pn[i];
+            cn[p[0]] = 0;
+            classes = 1;
+            for (int i = 1; i < n; i++) {
+                int a = p[i], b = p[i - 1];
+                int a2 = a + k < n ? a + k : a + k - n, b2 = b + k < n ? b + k : b + k - n;
+                if (c[a] != c[b] || c[a2] != c[b2]) classes++;
+                cn[a] = classes - 1;
+            }
+            int[] t = c; c = cn; cn = t;
+            checkCancel(caller);
+        }
+        return p;
+    }
+
+    private static byte[] identity() {
+        byte[] order = new byte[256];
+        for (int i = 0; i < 256; i++) order[i] = (byte) i;
+        return order;
+    }
+
+    // --- descompresión ---
+
+    private static void decodeBlock(byte[] p, int start, int len, byte[] out, int off, int n, Thread caller) throws IOException {
+        HuffmanCoder.BitReader r = new HuffmanCoder.BitReader(p, start, len);
+        int primary = read32(r), ns = read32(r);
+        if (primary < 0 || primary >= Math.max(1, n) || ns < 0 || ns > n) {
+            throw new IOException("BWT inválido: bloque con primary=" + primary + " nsym=" + ns);
+        }
+        byte[] lens = new byte[SYMBOLS];
+        for (int s = 0; s < SYMBOLS; s++) { lens[s] = (byte) r.peek(8); r.skip(8); }
+        int[] table = HuffmanCoder.decodeTable(lens);
+
+        // Huffman + RLE + MTF inverso → columna L
+        byte[] last = new byte[n];
+        byte[] order = identity();
+        int op = 0, run = 0, weight = 1;
+        for (int i = 0; i < ns; i++) {
+            int e = table[r.peek(HuffmanCoder.MAX_BITS)];
+            if (e < 0) throw new IOException("BWT inválido: código Huffman desconocido");
+            r.skip(e & 15);
+            int s = e >>> 4;
+            if (s <= RUNB) {
+                run += (s + 1) * weight;
+                weight <<= 1;
+                if (run > n - op) throw new IOException("BWT inválido: corrida fuera de rango");
+                continue;
+            }
+            if (run > 0) { java.util.Arrays.fill(last, op, op + run, order[0]); op += run; run = 0; weight = 1; }
+            int j = s - 1;
+            if (j > 255 || op >= n) throw new IOException("BWT inválido: símbolo " + s);
+            byte b = order[j];
+            System.arraycopy(order, 0, order, 1, j);
+            order[0] = b;
+            last[op++] = b;
+            if ((i & (CANCEL_STEP - 1)) == 0) checkCancel(caller);
+        }
+        if (run > 0) { java.util.Arrays.fill(last, op, op + run, order[0]); op += run; }
+        if (op != n || r.overrun()) throw new IOException("BWT inválido: " + op + " de " + n + " bytes");
+
+        // BWT inversa: LF(i) = C[L[i]] + rango de L[i] hasta i
+        int[] cnt = new int[256];
+        for (int i = 0; i < n; i++) cnt[last[i] & 0xFF]++;
+        for (int i = 0, sum = 0; i < 256; i++) { int t = cnt[i]; cnt[i] = sum; sum += t; }
+        int[] lf = new int[n];
+        for (int i = 0; i < n; i++) lf[i] = cnt[last[i] & 0xFF]++;
+        for (int k = n - 1, i = primary; k >= 0; k--) {
+            out[off + k] = last[i];
+            i = lf[i];
+        }
+    }
+
+    private static int read32(HuffmanCoder.BitReader r) {
+        int hi = r.peek(16); r.skip(16);
+        int lo = r.peek(16); r.skip(16);
+        return (hi << 16) | lo;
+    }
+}
@@ -0,0 +1,27 @@
+package compressor;
+
+/**
+ * Ordenamiento por bloques ({@link BwtCodec}) para texto, logs y fuentes: el mejor
+ * ratio de los propios después de CM, pero lento. Es de clase ARCHIVE, así que solo lo
+ * prueban los perfiles de archivo (MAX, COLD), y solo sobre datos con pinta de texto.
+ */
+public final class BwtStrategy implements CompressorStrategy {
+
+    /** Por encima de esto (bits/byte de orden 0) no se espera ganarle a DEFLATE. */
+    static final double TEXT_BITS = 6.0;
+
+    @Override public AlgorithmId id(){ return AlgorithmId.BWT; }
+    // Por núcleo; los bloques de 1 MB se reparten entre hilos.
+    @Override public Capabilities capabilities(){
+        return new Capabilities(Capabilities.RatioClass.ARCHIVE, 2, 8, 2.5, false);
+    }
+    @Override public boolean suits(double bitsPerByte){ return bitsPerByte < TEXT_BITS; }
+
+    @Override public byte[] compress(byte[] input) throws Exception {
+        return BwtCodec.compress(input);
+    }
+
+    @Override public byte[] decompress(byte[] payload) throws Exception {
+        return BwtCodec.decompress(payload);
+    }
+}
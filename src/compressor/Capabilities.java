@@ -0,0 +1,28 @@
+package compressor;
+
+/**
+ * Lo que un códec declara de sí mismo para que CodecSelector lo compare sin probarlo.
+ *
+ * @param ratio          clase de ratio esperado sobre datos compresibles (texto, logs)
+ * @param compressMBps   throughput de compresión por núcleo (MB/s de entrada)
+ * @param decompressMBps throughput de descompresión por núcleo (MB/s de salida)
+ * @param memoryFactor   memoria de trabajo aproximada en múltiplos del tamaño de entrada
+ * @param streaming      puede comprimir/descomprimir por partes sin tener todo en memoria
+ */
+public record Capabilities(RatioClass ratio, double compressMBps, double decompressMBps,
+                           double memoryFactor, boolean streaming) {
+
+    /**
+     * Ratio típico (salida/entrada) sobre datos compresibles. ARCHIVE y EXTREME son códecs
+     * lentos: solo los prueban los perfiles que los admiten (CompressionProfile.maxRatio).
+     */
+    public enum RatioClass {
+        NONE(1.0), LOW(0.7), MEDIUM(0.5), HIGH(0.35), ARCHIVE(0.25), EXTREME(0.2);
+
+        public final double expected;
+        RatioClass(double expected) { this.expected = expected; }
+    }
+
+    /** Para códecs que no declaran nada: se asumen lentos y sin ganancia (el selector los descarta). */
+    public static final Capabilities UNKNOWN = new Capabilities(RatioClass.NONE, 1, 1, 2, false);
+}
@@ -0,0 +1,342 @@
+package compressor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+
+/**
+ * Códec de mezcla de contextos (estilo lpaq), en Java puro, para archivo en frío:
+ * máximo ratio a costa de ~0.5-1 MB/s por núcleo en ambos sentidos.
+ *
+ * Se predice bit a bit con modelos de orden 0, 1, 2, 3, 4 y 6 más un modelo de
+ * coincidencias (el byte que siguió la última vez a los mismos ~5 bytes). Cada modelo
+ * da una probabilidad; un mezclador logístico (pesos por byte parcial) las combina,
+ * una etapa APM la refina con el contexto de orden 1, y un codificador aritmético
+ * binario de 32 bits emite el resultado.
+ *
+ * Todas las tablas son arreglos primitivos de tamaño fijo: los órdenes ≥2 van en
+ * tablas hash de 2^bits contadores (ranuras de 16 por nibble = una línea de caché),
+ * sin detección de colisiones. El modelo total ocupa ~5 × 4 × 2^bits bytes + 3 MB;
+ * bits se limita con -Dsfe.cm.bits (por defecto 20, ~24 MB; 16..24) y se achica en
+ * entradas chicas. Se graba en el payload, así que descomprimir no depende de la
+ * configuración.
+ *
+ * Payload: ORIGLEN(4, big-endian) | BITS(1) | flujo aritmético.
+ */
+public final class CmCodec {
+    private CmCodec(){}
+
+    public static final int DEFAULT_BITS = 20, MIN_BITS = 16, MAX_BITS = 24;
+    private static final int CANCEL_STEP = 1 << 16; // bytes entre chequeos de cancelación
+
+    /** bits de tabla configurados (-Dsfe.cm.bits), acotados a [MIN_BITS, MAX_BITS]. */
+    public static int configuredBits() {
+        int b = Integer.getInteger("sfe.cm.bits", DEFAULT_BITS);
+        return Math.max(MIN_BITS, Math.min(MAX_BITS, b));
+    }
+
+    public static byte[] compress(byte[] src) throws InterruptedIOException {
+        int n = src.length;
+        // ~32 contadores por byte y orden bastan; más sería memoria sin uso.
+        int bits = Math.max(MIN_BITS, Math.min(configuredBits(), 64 - Long.numberOfLeadingZeros(32L * n)));
+        Encoder enc = new Encoder(n / 3 + 64);
+        enc.out[0] = (byte) (n >>> 24); enc.out[1] = (byte) (n >>> 16); enc.out[2] = (byte) (n >>> 8); enc.out[3] = (byte) n;
+        enc.out[4] = (byte) bits;
+        enc.pos = 5;
+        Model m = new Model(bits, src, false);
+        for (int i = 0; i < n; i++) {
+            int c = src[i] & 0xFF;
+            for (int j = 7; j >= 0; j--) {
+                int y = (c >>> j) & 1;
+                enc.encode(y, m.p());
+                m.update(y);
+            }
+            if ((i & (CANCEL_STEP - 1)) == CANCEL_STEP - 1 && Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Operación cancelada");
+            }
+        }
+        return enc.finish();
+    }
+
+    public static byte[] decompress(byte[] p) throws IOException {
+        if (p.length < 5) throw new IOException("CM truncado");
+        int n = ((p[0] & 0xFF) << 24) | ((p[1] & 0xFF) << 16) | ((p[2] & 0xFF) << 8) | (p[3] & 0xFF);
+        int bits = p[4];
+        // Con probabilidades de 12 bits un byte cuesta ≥ 8·log2(4096/4095) bits: no más de ~2840 bytes por byte de flujo.
+        if (n < 0 || n > (long) p.length * 4096) throw new IOException("CM inválido: longitud " + n);
+        if (bits < MIN_BITS || bits > MAX_BITS) throw new IOException("CM inválido: tamaño de modelo " + bits);
+        byte[] out = new byte[n];
+        Decoder dec = new Decoder(p, 5);
+        Model m = new Model(bits, out, true);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < 8; j++) m.update(dec.decode(m.p()));
+            if ((i & (CANCEL_STEP - 1)) == CANCEL_STEP - 1 && Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Operación cancelada");
+            }
+        }
+        if (dec.overrun()) throw new IOException("CM inválido: flujo truncado");
+        return out;
+    }
+
+    // --- funciones logísticas (dominio de 12 bits) ---
+
+    private static final short[] STRETCH = new short[4096];
+    static {
+        int pi = 0;
+        for (int x = -2047; x <= 2047; x++) {
+            int v = squash(x);
+            for (int i = pi; i <= v; i++) STRETCH[i] = (short) x;
+            pi = v + 1;
+        }
+        for (int i = pi; i < 4096; i++) STRETCH[i] = 2047;
+    }
+
+    /** 4096 / (1 + e^(-d/256)), d en [-2047, 2047]. */
+    static int squash(int d) {
+        if (d > 2047) d = 2047;
+        if (d < -2047) d = -2047;
+        return (int) (4096.0 / (1.0 + Math.exp(-d / 256.0)));
+    }
+
+    static int stretch(int p) { return STRETCH[p]; }
+
+    // --- modelo ---
+
+    /**
+     * Contador adaptativo: 22 bits de probabilidad + 10 de cuenta; la tasa de aprendizaje
+     * baja como 1/(n+1.5) hasta el límite.
+     */
+    private static final int[] DT = new int[1024];
+    static { for (int i = 0; i < 1024; i++) DT[i] = 16384 / (i + i + 3); }
+
+    private static int counterP(int t) { return t >>> 20; }
+
+    private static int counterUpdate(int t, int y, int limit) {
+        int n = t & 1023, p = t >>> 10;
+        if (n < limit) t++;
+        else t = (t & 0xFFFFFC00) | limit;
+        return t + ((int) ((long) (((y << 22) - p) >> 3) * DT[n]) & 0xFFFFFC00);
+    }
+
+    private static final int INPUTS = 8; // 6 órdenes + coincidencias + sesgo
+    private static final int HASHED = 4; // órdenes 2, 3, 4 y 6
+    private static final int MATCH_MIN = 1, MATCH_MAX = 65534;
+
+    /** Predicción de un bit a partir del historial; idéntico en ambos sentidos. */
+    private static final class Model {
+        private final byte[] buf;
+        private final boolean decoding;
+        private final int bits;
+
+        private final int[] t0 = new int[256], t1 = new int[65536];
+        private final int[][] th = new int[HASHED][];
+        private final int[] hash = new int[HASHED], slot = new int[HASHED];
+        private final int[] idx = new int[HASHED];
+
+        private final int[] mt;
+        private final int mmask;
+        private final int[] msm = new int[64];
+        private int mh, mptr, mlen, mctx;
+
+        private final int[] w = new int[256 * INPUTS];
+        private final int[] st = new int[INPUTS];
+        private int wbase;
+
+        private final char[] apm = new char[65536 * 24];
+        private int apmIdx;
+
+        private int c0 = 1, nib = 1, bitPos, pos;
+        private long hist; // últimos 8 bytes
+        private int pr, prMix;
+
+        Model(int bits, byte[] buf, boolean decoding) {
+            this.bits = bits;
+            this.buf = buf;
+            this.decoding = decoding;
+            int init = 0x80000000; // p = 0.5, n = 0
+            Arrays.fill(t0, init);
+            Arrays.fill(t1, init);
+            for (int k = 0; k < HASHED; k++) { th[k] = new int[1 << bits]; Arrays.fill(th[k], init); }
+            mt = new int[1 << (bits - 2)];
+            mmask = mt.length - 1;
+            for (int i = 0; i < msm.length; i++) msm[i] = init;
+            Arrays.fill(w, (1 << 16) / 4);
+            char[] row = new char[24];
+            for (int j = 0; j < 24; j++) row[j] = (char) (squash((j - 12) * 4096 / 23) * 16);
+            for (int c = 0; c < 65536; c++) System.arraycopy(row, 0, apm, c * 24, 24);
+            computeSlots();
+        }
+
+        /** Probabilidad de que el próximo bit sea 1, en 12 bits (1..4095). */
+        int p() {
+            int c1 = (int) hist & 0xFF;
+            st[0] = stretch(counterP(t0[c0]));
+            st[1] = stretch(counterP(t1[(c1 << 8) | c0]));
+            for (int k = 0; k < HASHED; k++) {
+                idx[k] = slot[k] + nib;
+                st[2 + k] = stretch(counterP(th[k][idx[k]]));
+            }
+            // coincidencia: el bit esperado y la longitud eligen el contador
+            mctx = 0;
+            if (mlen > 0) {
+                int pb = (buf[mptr] & 0xFF) | 256;
+                if ((pb >>> (8 - bitPos)) == c0) {
+                    int l = mlen < 16 ? mlen : 16 + Math.min(15, (mlen - 16) >>> 4);
+                    mctx = (l << 1) | ((pb >>> (7 - bitPos)) & 1);
+                } else {
+                    mlen = 0;
+                }
+            }
+            st[6] = stretch(counterP(msm[mctx]));
+            st[7] = 256;
+
+            wbase = c0 * INPUTS;
+            long dot = 0;
+            for (int i = 0; i < INPUTS; i++) dot += (long) st[i] * w[wbase + i];
+            prMix = squash((int) (dot >> 16));
+
+            // APM: interpolación entre 24 puntos del dominio stretch, contexto orden 1 + byte parcial
+            int s = (stretch(prMix) + 2048) * 23;
+            int wt = s & 0xFFF;
+            int base = (c1 << 8 | c0) * 24 + (s >>> 12);
+            apmIdx = base + (wt >>> 11);
+            int pa = (apm[base] * (4096 - wt) + apm[base + 1] * wt) >> 16;
+
+            pr = (prMix + 3 * pa) >> 2;
+            if (pr < 1) pr = 1; else if (pr > 4095) pr = 4095;
+            return pr;
+        }
+
+        void update(int y) {
+            t0[c0] = counterUpdate(t0[c0], y, 1023);
+            int c1 = (int) hist & 0xFF;
+            int i1 = (c1 << 8) | c0;
+            t1[i1] = counterUpdate(t1[i1], y, 1023);
+            for (int k = 0; k < HASHED; k++) th[k][idx[k]] = counterUpdate(th[k][idx[k]], y, 255);
+            msm[mctx] = counterUpdate(msm[mctx], y, 1023);
+
+            int err = ((y << 12) - prMix) * 6; // tasa ~0.012 en unidades reales
+            for (int i = 0; i < INPUTS; i++) w[wbase + i] += (st[i] * err) >> 13;
+
+            int g = (y << 16) + (y << 7) - y - y;
+            apm[apmIdx] = (char) (apm[apmIdx] + ((g - apm[apmIdx]) >> 7));
+
+            c0 = (c0 << 1) | y;
+            nib = (nib << 1) | y;
+            if (++bitPos == 4) {
+                nib = 1;
+                computeSlots();
+            } else if (bitPos == 8) {
+                byteDone(c0 & 0xFF);
+            }
+        }
+
+        private void byteDone(int c) {
+            if (decoding) buf[pos] = (byte) c;
+            hist = (hist << 8) | c;
+            c0 = 1; nib = 1; bitPos = 0;
+
+            // modelo de coincidencias
+            if (mlen > 0) {
+                mptr++;
+                if (mlen < MATCH_MAX) mlen++;
+            }
+            pos++;
+            mh = (mh * (3 << 3) + c + 1) & mmask;
+            if (mlen == 0) {
+                int cand = mt[mh];
+                if (cand > 0) {
+                    int l = 0;
+                    while (l < MATCH_MAX && l < cand && buf[cand - 1 - l] == buf[pos - 1 - l]) l++;
+                    if (l >= MATCH_MIN) { mlen = l; mptr = cand; }
+                }
+            }
+            mt[mh] = pos;
+
+            // hashes de contexto de los órdenes 2, 3, 4 y 6
+            hash[0] = mix((int) hist & 0xFFFF, 2);
+            hash[1] = mix((int) hist & 0xFFFFFF, 3);
+            hash[2] = mix((int) hist, 4);
+            hash[3] = mix((int) hist ^ ((int) (hist >>> 32) & 0xFFFF) * 0x2F0B3D3, 6);
+            computeSlots();
+        }
+
+        /** Ranura de 16 contadores alineada por orden para el nibble actual. */
+        private void computeSlots() {
+            for (int k = 0; k < HASHED; k++) {
+                int h = (hash[k] + c0 * 0x3C6EF372) * 0x9E3779B1;
+                slot[k] = (h >>> (32 - bits)) & ~15;
+            }
+        }
+
+        private static int mix(int ctx, int order) {
+            int h = ctx * 0x2C1B3C6D + order * 0x297A2D39;
+            return h ^ (h >>> 15);
+        }
+    }
+
+    // --- codificador aritmético binario (32 bits) ---
+
+    private static final class Encoder {
+        byte[] out;
+        int pos;
+        private int x1 = 0, x2 = -1;
+
+        Encoder(int capacity) { out = new byte[Math.max(16, capacity)]; }
+
+        void encode(int y, int p) {
+            int xmid = x1 + (int) ((((x2 - x1) & 0xFFFFFFFFL) >>> 12) * p);
+            if (y != 0) x2 = xmid; else x1 = xmid + 1;
+            while (((x1 ^ x2) & 0xFF000000) == 0) {
+                put(x2 >>> 24);
+                x1 <<= 8;
+                x2 = (x2 << 8) | 255;
+            }
+        }
+
+        private void put(int b) {
+            if (pos == out.length) out = Arrays.copyOf(out, out.length * 2);
+            out[pos++] = (byte) b;
+        }
+
+        byte[] finish() {
+            for (int s = 24; s >= 0; s -= 8) put(x1 >>> s);
+            return Arrays.copyOf(out, pos);
+        }
+    }
+
+    private static final class Decoder {
+        private final byte[] in;
+        private int pos;
+        private int x1 = 0, x2 = -1, x;
+
+        Decoder(byte[] in, int off) {
+            this.in = in;
+            this.pos = off;
+            for (int i = 0; i < 4; i++) x = (x << 8) | next();
+        }
+
+        /** Siguiente byte; más allá del final, ceros (el codificador cierra con 4 bytes de x1). */
+        private int next() {
+            int b = pos < in.length ? in[pos] & 0xFF : 0;
+            pos++;
+            return b;
+        }
+
+        int decode(int p) {
+            int xmid = x1 + (int) ((((x2 - x1) & 0xFFFFFFFFL) >>> 12) * p);
+            int y;
+            if (Integer.compareUnsigned(x, xmid) <= 0) { y = 1; x2 = xmid; }
+            else { y = 0; x1 = xmid + 1; }
+            while (((x1 ^ x2) & 0xFF000000) == 0) {
+                x1 <<= 8;
+                x2 = (x2 << 8) | 255;
+                x = (x << 8) | next();
+            }
+            return y;
+        }
+
+        /** Se consumieron más bytes de los que había. */
+        boolean overrun() { return pos > in.length; }
+    }
+}
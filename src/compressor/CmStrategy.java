@@ -0,0 +1,23 @@
+package compressor;
+
+/**
+ * Mezcla de contextos ({@link CmCodec}) para almacenamiento en frío: el mejor ratio de
+ * los propios en cualquier dato compresible, a ~1 MB/s en ambos sentidos. Es de clase
+ * EXTREME: solo lo prueba el perfil COLD.
+ */
+public final class CmStrategy implements CompressorStrategy {
+
+    @Override public AlgorithmId id(){ return AlgorithmId.CM; }
+    // Modelo acotado (~24 MB con -Dsfe.cm.bits=20) más entrada y salida.
+    @Override public Capabilities capabilities(){
+        return new Capabilities(Capabilities.RatioClass.EXTREME, 0.6, 0.6, 2, false);
+    }
+
+    @Override public byte[] compress(byte[] input) throws Exception {
+        return CmCodec.compress(input);
+    }
+
+    @Override public byte[] decompress(byte[] payload) throws Exception {
+        return CmCodec.decompress(payload);
+    }
+}
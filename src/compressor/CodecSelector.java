@@ -0,0 +1,98 @@
+package compressor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Elige qué códecs vale la pena probar con un modelo de costo, a partir de lo que
+ * cada uno declara en {@link Capabilities} (sin ejecutarlos):
+ *
+ *   costo = CPU(compresión + reads × descompresión) × precio CPU
+ *         − bytes ahorrados × precio de almacenamiento × meses
+ *
+ * Los bytes ahorrados se estiman con la clase de ratio del códec escalada por la
+ * entropía de orden 0 de la entrada: a ≥8 bits/byte no se ahorra nada y a ≤4.5
+ * (texto) se espera el ratio declarado. Se descartan los códecs con costo ≥ 0
+ * (no pagan su CPU) o cuya memoria de trabajo no entra en el heap libre.
+ *
+ * Precios (USD), configurables:
+ *   -Dsfe.cost.cpuHour=0.04        núcleo-hora
+ *   -Dsfe.cost.storageGbMonth=0.023
+ *   -Dsfe.cost.months=12           tiempo de retención
+ *   -Dsfe.cost.reads=1             restauraciones esperadas por archivo
+ */
+public final class CodecSelector {
+
+    private static final double MB = 1024.0 * 1024.0, GB = MB * 1024.0;
+    private static final double TEXT_BITS = 4.5;
+
+    public final double cpuPerSecond, storagePerByte, reads;
+
+    public CodecSelector(double cpuHour, double storageGbMonth, double months, double reads) {
+        this.cpuPerSecond = cpuHour / 3600.0;
+        this.storagePerByte = storageGbMonth * months / GB;
+        this.reads = reads;
+    }
+
+    public static CodecSelector fromSystemProperties() {
+        return new CodecSelector(dbl("sfe.cost.cpuHour", 0.04), dbl("sfe.cost.storageGbMonth", 0.023),
+                dbl("sfe.cost.months", 12), dbl("sfe.cost.reads", 1));
+    }
+
+    /** Estimación para un códec sobre n bytes con la entropía dada. */
+    public record Estimate(CompressorStrategy codec, double ratio, double cpuSeconds, double cost) {
+        @Override public String toString() {
+            return String.format(Locale.ROOT, "%s ratio~%.3f cpu~%.4fs costo=%.3g", codec.name(), ratio, cpuSeconds, cost);
+        }
+    }
+
+    public Estimate estimate(CompressorStrategy s, long n, double bitsPerByte) {
+        Capabilities c = s.capabilities();
+        double gain = Math.max(0.0, Math.min(1.0, (8.0 - bitsPerByte) / (8.0 - TEXT_BITS)));
+        double ratio = 1.0 - (1.0 - c.ratio().expected) * gain;
+        double cpu = n / MB / c.compressMBps() + reads * n / MB / c.decompressMBps();
+        double cost = cpu * cpuPerSecond - n * (1.0 - ratio) * storagePerByte;
+        return new Estimate(s, ratio, cpu, cost);
+    }
+
+    /** Todas las estimaciones, de menor a mayor costo (para diagnóstico y benchmarks). */
+    public List<Estimate> rank(List<CompressorStrategy> codecs, long n, double bitsPerByte) {
+        List<Estimate> r = new ArrayList<>();
+        for (CompressorStrategy s : codecs) r.add(estimate(s, n, bitsPerByte));
+        r.sort(Comparator.comparingDouble(Estimate::cost));
+        return r;
+    }
+
+    /**
+     * Códecs que conviene probar, del más al menos rentable: costo negativo y memoria
+     * disponible. Puede quedar vacío (conviene STORED).
+     */
+    public List<CompressorStrategy> plan(List<CompressorStrategy> codecs, long n, double bitsPerByte) {
+        Runtime rt = Runtime.getRuntime();
+        long free = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+        List<CompressorStrategy> out = new ArrayList<>();
+        for (Estimate e : rank(codecs, n, bitsPerByte)) {
+            if (e.cost >= 0) continue;
+            if (e.codec.capabilities().memoryFactor() * n > free) continue;
+            out.add(e.codec);
+        }
+        return out;
+    }
+
+    /**
+     * Costo que queda después de comprimir (la CPU de compresión ya se gastó):
+     * restauraciones esperadas + almacenamiento de outBytes. Sirve para elegir entre
+     * salidas ya calculadas; con reads alto gana el que descomprime más rápido.
+     */
+    public double retainedCost(CompressorStrategy c, long n, long outBytes) {
+        return reads * n / MB / c.capabilities().decompressMBps() * cpuPerSecond + outBytes * storagePerByte;
+    }
+
+    private static double dbl(String key, double def) {
+        String v = System.getProperty(key);
+        if (v == null) return def;
+        try { return Double.parseDouble(v); } catch (NumberFormatException e) { return def; }
+    }
+}
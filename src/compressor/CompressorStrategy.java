@@ -1,7 +1,43 @@
 package compressor;
 
+/**
+ * Códec enchufable. Los propios se registran en StrategyRegistry; los externos se
+ * descubren con ServiceLoader: un jar con la implementación y el archivo
+ * META-INF/services/compressor.CompressorStrategy que la nombra.
+ *
+ * compress/decompress trabajan sin el byte marcador: FileCompressor lo agrega al
+ * escribir y lo quita antes de llamar a decompress.
+ */
 public interface CompressorStrategy {
-    AlgorithmId id();
+    /** Identificador de los códecs propios; null en códecs externos (usan name() y marker()). */
+    default AlgorithmId id() { return null; }
+
+    /** Nombre para logs, métricas y catálogo. */
+    default String name() { return id() != null ? id().name() : getClass().getSimpleName(); }
+
+    /**
+     * Byte marcador del payload. Un códec externo debe sobrescribirlo con un valor que no
+     * use ningún otro (0, 1 y 'M' están reservados; ver StrategyRegistry).
+     */
+    default byte marker() {
+        if (id() == null) throw new IllegalStateException(getClass().getName() + " no declara marker()");
+        return id().marker;
+    }
+
+    default Capabilities capabilities() { return Capabilities.UNKNOWN; }
+
+    /**
+     * Si vale la pena probarlo sobre datos con esta entropía de orden 0 (bits/byte).
+     * Por defecto siempre; los códecs especializados (p. ej. solo texto) lo restringen.
+     */
+    default boolean suits(double bitsPerByte) { return true; }
+
+    /**
+     * Variante con el esfuerzo de un perfil: nivel DEFLATE (0..9) y posiciones de ventana
+     * LZSS examinadas. Por defecto el mismo códec; lo sobrescriben los que tienen esas perillas.
+     */
+    default CompressorStrategy withEffort(int level, int depth) { return this; }
+
     byte[] compress(byte[] input) throws Exception;
     byte[] decompress(byte[] payload) throws Exception;
 }
@@ -1,38 +1,78 @@
 package compressor;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
 
+/**
+ * DEFLATE raw (sin cabecera zlib) al nivel dado; el registro usa BEST_COMPRESSION y el
+ * perfil fija el suyo con withEffort. Deflater/Inflater procesan por partes (streaming).
+ */
 public final class DeflateStrategy implements CompressorStrategy {
+    private final int level;
+
+    public DeflateStrategy() { this(Deflater.BEST_COMPRESSION); }
+
+    public DeflateStrategy(int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Nivel DEFLATE inválido: " + level);
+        }
+        this.level = level;
+    }
+
     @Override public AlgorithmId id(){ return AlgorithmId.DEFLATE; }
+    @Override public Capabilities capabilities(){
+        return new Capabilities(Capabilities.RatioClass.HIGH, level <= Deflater.BEST_SPEED ? 80 : 20, 300, 1.2, true);
+    }
+
+    @Override public CompressorStrategy withEffort(int level, int depth) {
+        return level == this.level ? this : new DeflateStrategy(level);
+    }
 
-    @Override public byte[] compress(byte[] input) throws Exception {
-        Deflater def = new Deflater(Deflater.BEST_COMPRESSION, true); // raw
-        def.setInput(input); def.finish();
-        byte[] buf = new byte[4096];
+    @Override public byte[] compress(byte[] input) throws InterruptedIOException {
+        Deflater def = new Deflater(level, true);
+        def.setInput(input);
+        def.finish();
+        byte[] buf = new byte[64 * 1024];
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        while (!def.finished()) {
-            int n = def.deflate(buf);
-            if (n == 0 && def.needsInput()) break;
-            baos.write(buf, 0, n);
+        try {
+            while (!def.finished()) {
+                checkCancelled();
+                int n = def.deflate(buf);
+                if (n == 0 && def.needsInput()) break;
+                baos.write(buf, 0, n);
+            }
+        } finally {
+            def.end();
         }
-        def.end();
         return baos.toByteArray();
     }
 
-    @Override public byte[] decompress(byte[] input) throws Exception {
-        Inflater inf = new Inflater(true); // raw
-        inf.setInput(input);
-        byte[] buf = new byte[4096];
+    @Override public byte[] decompress(byte[] input) throws IOException {
+        Inflater inf = new Inflater(true);
+        byte[] buf = new byte[64 * 1024];
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         try {
+            inf.setInput(input);
             while (!inf.finished()) {
+                checkCancelled();
                 int n = inf.inflate(buf);
                 if (n == 0 && inf.needsInput()) break;
                 baos.write(buf, 0, n);
             }
-        } finally { inf.end(); }
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("DEFLATE inválido: " + e.getMessage(), e);
+        } finally {
+            inf.end();
+        }
         return baos.toByteArray();
     }
+
+    private static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Operación cancelada");
+    }
 }
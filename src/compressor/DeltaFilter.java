@@ -0,0 +1,30 @@
+package compressor;
+
+/**
+ * Delta por bytes con paso configurable (1..255): cada byte se reemplaza por la
+ * diferencia con el que está stride posiciones antes. Con stride = ancho de la muestra
+ * convierte contadores, marcas de tiempo y señales suaves en valores chicos y repetidos.
+ */
+public final class DeltaFilter implements PreFilter {
+
+    @Override public byte id(){ return 2; }
+    @Override public String name(){ return "delta"; }
+    @Override public int defaultParam(){ return 1; }
+    @Override public boolean accepts(int stride){ return stride >= 1 && stride <= 255; }
+
+    @Override public byte[] forward(byte[] in, int stride) {
+        byte[] out = new byte[in.length];
+        int head = Math.min(stride, in.length);
+        System.arraycopy(in, 0, out, 0, head);
+        for (int i = head; i < in.length; i++) out[i] = (byte) (in[i] - in[i - stride]);
+        return out;
+    }
+
+    @Override public byte[] inverse(byte[] in, int stride) {
+        byte[] out = new byte[in.length];
+        int head = Math.min(stride, in.length);
+        System.arraycopy(in, 0, out, 0, head);
+        for (int i = head; i < in.length; i++) out[i] = (byte) (in[i] + out[i - stride]);
+        return out;
+    }
+}
@@ -1,23 +1,23 @@
 package compressor;
 
 /**
- * Adaptador para TU compresor “que sí comprime bien”.
- * Aquí solo llamas a las funciones de ese proyecto y devuelves bytes.
+ * Ranura EXTERNAL: códec rápido estilo LZ4 ({@link Lz4Codec}) para datos calientes
+ * que se restauran seguido. Comprime menos que DEFLATE pero descomprime mucho más
+ * rápido. El perfil FAST lo prueba primero; en los demás CodecSelector lo elige
+ * cuando -Dsfe.cost.reads (restauraciones esperadas) es alto.
  */
 public final class ExternalAdapter implements CompressorStrategy {
 
     @Override public AlgorithmId id(){ return AlgorithmId.EXTERNAL; }
+    @Override public Capabilities capabilities(){
+        return new Capabilities(Capabilities.RatioClass.MEDIUM, 250, 800, 1.1, false);
+    }
 
     @Override public byte[] compress(byte[] input) throws Exception {
-        // TODO: Reemplaza por llamadas reales a tu compresor del proyecto que funciona.
-        // EJEMPLO de patrón (pseudo):
-        // return YourGoodCompressor.compress(input);
-        return input; // temporal: no hacer nada si aún no pegas tu compresor
+        return Lz4Codec.compress(input);
     }
 
     @Override public byte[] decompress(byte[] payload) throws Exception {
-        // TODO: Reemplaza por llamadas reales a tu descompresor.
-        // return YourGoodCompressor.decompress(payload);
-        return payload; // temporal
+        return Lz4Codec.decompress(payload);
     }
 }
@@ -0,0 +1,46 @@
+package compressor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Registro de pre-filtros: los propios (bcj, delta, split) más los que se encuentren
+ * con ServiceLoader. Cada id y cada nombre identifican un solo filtro; 0 está reservado.
+ */
+public final class FilterRegistry {
+    private static final List<PreFilter> FILTERS = new ArrayList<>();
+    private static final PreFilter[] BY_ID = new PreFilter[256];
+    static {
+        register(new BcjX86Filter());
+        register(new DeltaFilter());
+        register(new ColumnSplitFilter());
+        Plugins.load(PreFilter.class, "FILTRO", FilterRegistry::register);
+    }
+    private FilterRegistry(){}
+
+    /** Registra un filtro; falla si su id es 0 o si el id o el nombre ya están en uso. */
+    public static synchronized void register(PreFilter f) {
+        int id = f.id() & 0xFF;
+        if (id == 0) throw new IllegalArgumentException("id reservado: 0");
+        PreFilter prev = BY_ID[id];
+        if (prev != null) {
+            if (prev.getClass() == f.getClass()) return;
+            throw new IllegalArgumentException("id " + id + " ya usado por " + prev.name());
+        }
+        if (byName(f.name()) != null) throw new IllegalArgumentException("nombre ya usado: " + f.name());
+        BY_ID[id] = f;
+        FILTERS.add(f);
+    }
+
+    public static synchronized List<PreFilter> all(){ return Collections.unmodifiableList(new ArrayList<>(FILTERS)); }
+
+    /** Filtro dueño del id, o null. */
+    public static synchronized PreFilter byId(byte id) { return BY_ID[id & 0xFF]; }
+
+    /** Filtro por nombre (sin distinguir mayúsculas), o null. */
+    public static synchronized PreFilter byName(String name) {
+        for (PreFilter f : FILTERS) if (f.name().equalsIgnoreCase(name.trim())) return f;
+        return null;
+    }
+}
@@ -0,0 +1,135 @@
+package compressor;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Huffman canónico estático por bloque, con códigos de hasta MAX_BITS bits.
+ * Las longitudes se guardan como un byte por símbolo; el decodificador usa una tabla
+ * de 2^MAX_BITS entradas (un acceso por símbolo).
+ */
+final class HuffmanCoder {
+    private HuffmanCoder(){}
+
+    static final int MAX_BITS = 15;
+
+    /** Longitudes de código para las frecuencias dadas (0 = símbolo ausente). */
+    static byte[] lengths(int[] freq) {
+        int n = freq.length;
+        byte[] len = new byte[n];
+        int[] f = freq.clone();
+        while (true) {
+            int used = 0, only = -1;
+            for (int s = 0; s < n; s++) if (f[s] > 0) { used++; only = s; }
+            if (used == 0) return len;
+            if (used == 1) { len[only] = 1; return len; }
+
+            // nodos: 0..n-1 hojas, n.. internos; pq por (peso, id)
+            int[] parent = new int[2 * n];
+            long[] weight = new long[2 * n];
+            PriorityQueue<long[]> pq = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+            for (int s = 0; s < n; s++) if (f[s] > 0) { weight[s] = f[s]; pq.add(new long[]{f[s], s}); }
+            int next = n;
+            while (pq.size() > 1) {
+                long[] a = pq.poll(), b = pq.poll();
+                weight[next] = a[0] + b[0];
+                parent[(int) a[1]] = next;
+                parent[(int) b[1]] = next;
+                pq.add(new long[]{weight[next], next});
+                next++;
+            }
+            int root = next - 1, max = 0;
+            for (int s = 0; s < n; s++) {
+                if (f[s] == 0) { len[s] = 0; continue; }
+                int d = 0;
+                for (int x = s; x != root; x = parent[x]) d++;
+                len[s] = (byte) d;
+                max = Math.max(max, d);
+            }
+            if (max <= MAX_BITS) return len;
+            for (int s = 0; s < n; s++) if (f[s] > 0) f[s] = (f[s] >>> 1) | 1; // aplanar y reintentar
+        }
+    }
+
+    /** Códigos canónicos: por longitud y luego por símbolo. */
+    static int[] codes(byte[] len) {
+        int[] blCount = new int[MAX_BITS + 1];
+        for (byte l : len) if (l > 0) blCount[l]++;
+        int[] next = new int[MAX_BITS + 2];
+        int code = 0;
+        for (int bits = 1; bits <= MAX_BITS; bits++) {
+            code = (code + blCount[bits - 1]) << 1;
+            next[bits] = code;
+        }
+        int[] codes = new int[len.length];
+        for (int s = 0; s < len.length; s++) if (len[s] > 0) codes[s] = next[len[s]]++;
+        return codes;
+    }
+
+    /** Tabla de decodificación: entrada = (símbolo << 4) | longitud, indexada por MAX_BITS bits. */
+    static int[] decodeTable(byte[] len) throws IOException {
+        for (byte l : len) if (l < 0 || l > MAX_BITS) throw new IOException("Huffman inválido: longitud " + l);
+        int[] codes = codes(len);
+        int[] table = new int[1 << MAX_BITS];
+        Arrays.fill(table, -1);
+        for (int s = 0; s < len.length; s++) {
+            int l = len[s];
+            if (l == 0) continue;
+            int from = codes[s] << (MAX_BITS - l), to = (codes[s] + 1) << (MAX_BITS - l);
+            if (to > table.length) throw new IOException("Huffman inválido: códigos desbordan");
+            Arrays.fill(table, from, to, (s << 4) | l);
+        }
+        return table;
+    }
+
+    /** Escritor de bits MSB primero sobre un arreglo que crece. */
+    static final class BitWriter {
+        private byte[] buf;
+        private int pos;
+        private long acc;
+        private int bits;
+
+        BitWriter(int capacity) { buf = new byte[Math.max(16, capacity)]; }
+
+        void write(int code, int n) {
+            acc = (acc << n) | (code & ((1L << n) - 1));
+            bits += n;
+            while (bits >= 8) {
+                if (pos == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                bits -= 8;
+                buf[pos++] = (byte) (acc >>> bits);
+            }
+        }
+
+        byte[] finish() {
+            if (bits > 0) write(0, 8 - bits);
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    /** Lector de bits MSB primero; más allá del final lee ceros. */
+    static final class BitReader {
+        private final byte[] buf;
+        private int pos;
+        private final int end;
+        private long acc;
+        private int bits;
+
+        BitReader(byte[] buf, int off, int len) { this.buf = buf; this.pos = off; this.end = off + len; }
+
+        int peek(int n) {
+            while (bits < n) {
+                acc = (acc << 8) | (pos < end ? buf[pos] & 0xFF : 0);
+                pos++;
+                bits += 8;
+            }
+            return (int) (acc >>> (bits - n)) & ((1 << n) - 1);
+        }
+
+        void skip(int n) { bits -= n; }
+
+        /** Se leyeron más bits de los que había (flujo truncado). */
+        boolean overrun() { return pos - (bits >>> 3) > end; }
+    }
+}
@@ -0,0 +1,182 @@
+package compressor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Códec rápido estilo LZ4 (formato de bloque LZ4), en Java puro.
+ *
+ * Payload: ORIGLEN(4, big-endian) | secuencias LZ4. Cada secuencia es
+ *   TOKEN(literales:4 | match-4:4) [+255...] LITERALES OFFSET(2, little-endian) [+255...]
+ * y la última solo lleva literales (los últimos 5 bytes siempre son literales y
+ * ningún match empieza en los últimos 12), como en LZ4.
+ *
+ * Compresión: tabla hash de 2^16 posiciones sobre 4 bytes (un candidato por hash,
+ * sin cadenas) y salto acelerado cuando no hay matches, para pasar rápido por datos
+ * incompresibles. Descompresión: copias de 8 bytes por palabra ("wildcopy") que
+ * pueden escribir unos bytes de más y luego se sobrescriben; solo se usan cuando el
+ * destino tiene margen, así el arreglo de salida es exacto.
+ */
+public final class Lz4Codec {
+    private Lz4Codec(){}
+
+    private static final int MIN_MATCH = 4, LAST_LITERALS = 5, MF_LIMIT = 12;
+    private static final int MAX_DIST = 65535;
+    private static final int HASH_LOG = 16;
+    private static final int SKIP_TRIGGER = 6;
+    private static final int CANCEL_STEP = 1 << 16; // secuencias entre chequeos de cancelación
+
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Entradas viejas de otra llamada son inofensivas: todo candidato se valida contra los datos.
+    private static final ThreadLocal<int[]> TABLE = ThreadLocal.withInitial(() -> new int[1 << HASH_LOG]);
+
+    /** Peor caso de salida (datos incompresibles). */
+    public static int maxCompressedLength(int n) { return 4 + n + n / 255 + 16; }
+
+    public static byte[] compress(byte[] src) throws InterruptedIOException {
+        int n = src.length;
+        byte[] dst = new byte[maxCompressedLength(n)];
+        dst[0] = (byte) (n >>> 24); dst[1] = (byte) (n >>> 16); dst[2] = (byte) (n >>> 8); dst[3] = (byte) n;
+        int op = 4, anchor = 0;
+
+        if (n > MF_LIMIT) {
+            int[] table = TABLE.get();
+            int limit = n - MF_LIMIT, matchLimit = n - LAST_LITERALS;
+            table[hash((int) INT.get(src, 0))] = 0;
+            int ip = 1, step = 1 << SKIP_TRIGGER, seq = 0;
+            while (ip < limit) {
+                int seqInt = (int) INT.get(src, ip);
+                int h = hash(seqInt);
+                int ref = table[h];
+                table[h] = ip;
+                if (ref >= ip || ip - ref > MAX_DIST || (int) INT.get(src, ref) != seqInt) {
+                    ip += step++ >>> SKIP_TRIGGER; // sin match: avanzar cada vez más rápido
+                    continue;
+                }
+                while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) { ip--; ref--; }
+                int len = MIN_MATCH + matchLength(src, ip + MIN_MATCH, ref + MIN_MATCH, matchLimit);
+                op = writeSequence(dst, op, src, anchor, ip - anchor, ip - ref, len);
+                ip += len;
+                anchor = ip;
+                if (ip < limit) table[hash((int) INT.get(src, ip - 2))] = ip - 2;
+                step = 1 << SKIP_TRIGGER;
+                if (++seq % CANCEL_STEP == 0 && Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Operación cancelada");
+                }
+            }
+        }
+        op = writeLiterals(dst, op, src, anchor, n - anchor, 0);
+        return java.util.Arrays.copyOf(dst, op);
+    }
+
+    public static byte[] decompress(byte[] p) throws IOException {
+        if (p.length < 4) throw new IOException("LZ4 truncado");
+        int n = ((p[0] & 0xFF) << 24) | ((p[1] & 0xFF) << 16) | ((p[2] & 0xFF) << 8) | (p[3] & 0xFF);
+        // Cada byte de entrada expande a lo sumo 255 (longitudes de extensión): cota antes de reservar.
+        if (n < 0 || n > (long) (p.length - 4) * 255 + 16) throw new IOException("LZ4 inválido: longitud " + n);
+        byte[] out = new byte[n];
+        int ip = 4, op = 0, end = p.length, seq = 0;
+        while (true) {
+            if (ip >= end) throw new IOException("LZ4 truncado en token");
+            int token = p[ip++] & 0xFF;
+
+            int lit = token >>> 4;
+            if (lit == 15) {
+                int b;
+                do {
+                    if (ip >= end) throw new IOException("LZ4 truncado en longitud de literales");
+                    b = p[ip++] & 0xFF;
+                    lit += b;
+                } while (b == 255);
+            }
+            if (lit > end - ip || lit > n - op) throw new IOException("LZ4 inválido: literales fuera de rango");
+            if (ip + lit + 8 <= end && op + lit + 8 <= n) {
+                for (int k = 0; k < lit; k += 8) LONG.set(out, op + k, (long) LONG.get(p, ip + k));
+            } else {
+                System.arraycopy(p, ip, out, op, lit);
+            }
+            ip += lit;
+            op += lit;
+            if (ip == end) break; // última secuencia: solo literales
+
+            if (ip + 2 > end) throw new IOException("LZ4 truncado en offset");
+            int off = (p[ip] & 0xFF) | ((p[ip + 1] & 0xFF) << 8);
+            ip += 2;
+            if (off == 0 || off > op) throw new IOException("LZ4 inválido: offset " + off + " en " + op);
+
+            int len = token & 15;
+            if (len == 15) {
+                int b;
+                do {
+                    if (ip >= end) throw new IOException("LZ4 truncado en longitud de match");
+                    b = p[ip++] & 0xFF;
+                    len += b;
+                } while (b == 255);
+            }
+            len += MIN_MATCH;
+            if (len > n - op) throw new IOException("LZ4 inválido: match fuera de rango");
+
+            int ref = op - off;
+            if (off >= 8 && op + len + 8 <= n) {
+                // Con off ≥ 8 cada palabra leída ya está escrita por completo.
+                for (int k = 0; k < len; k += 8) LONG.set(out, op + k, (long) LONG.get(out, ref + k));
+            } else if (off == 1) {
+                java.util.Arrays.fill(out, op, op + len, out[ref]);
+            } else {
+                for (int k = 0; k < len; k++) out[op + k] = out[ref + k];
+            }
+            op += len;
+            if (++seq % CANCEL_STEP == 0 && Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Operación cancelada");
+            }
+        }
+        if (op != n) throw new IOException("LZ4 inválido: " + op + " de " + n + " bytes");
+        return out;
+    }
+
+    private static int hash(int v) { return (v * -1640531535) >>> (32 - HASH_LOG); } // 2654435761
+
+    /** Bytes iguales desde a y b (b < a) sin pasar de limit, comparando de a 8. */
+    private static int matchLength(byte[] s, int a, int b, int limit) {
+        int start = a;
+        while (a + 8 <= limit) {
+            long x = (long) LONG.get(s, a) ^ (long) LONG.get(s, b);
+            if (x != 0) return a - start + (Long.numberOfTrailingZeros(x) >>> 3);
+            a += 8; b += 8;
+        }
+        while (a < limit && s[a] == s[b]) { a++; b++; }
+        return a - start;
+    }
+
+    private static int writeSequence(byte[] dst, int op, byte[] src, int litStart, int litLen, int off, int len) {
+        int ml = len - MIN_MATCH;
+        op = writeLiterals(dst, op, src, litStart, litLen, Math.min(ml, 15));
+        dst[op++] = (byte) off;
+        dst[op++] = (byte) (off >>> 8);
+        if (ml >= 15) op = writeLength(dst, op, ml - 15);
+        return op;
+    }
+
+    /** TOKEN (con los 4 bits bajos dados) + longitud de literales + literales. */
+    private static int writeLiterals(byte[] dst, int op, byte[] src, int start, int lit, int low) {
+        if (lit >= 15) {
+            dst[op++] = (byte) (0xF0 | low);
+            op = writeLength(dst, op, lit - 15);
+        } else {
+            dst[op++] = (byte) ((lit << 4) | low);
+        }
+        System.arraycopy(src, start, dst, op, lit);
+        return op + lit;
+    }
+
+    private static int writeLength(byte[] dst, int op, int v) {
+        while (v >= 255) { dst[op++] = (byte) 255; v -= 255; }
+        dst[op++] = (byte) v;
+        return op;
+    }
+}
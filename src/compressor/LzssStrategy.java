@@ -2,18 +2,44 @@ package compressor;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
 
+/**
+ * LZSS propio. Empaquetado: [flag(1)][literal: byte][ref: dist(2) len(1)];
+ * flag 1 = literal, 0 = referencia. depth = posiciones de la ventana examinadas por
+ * símbolo (≤ WINDOW): el perfil lo fija con withEffort.
+ */
 public final class LzssStrategy implements CompressorStrategy {
     private static final int WINDOW = 4096, LOOK = 18, MINLEN = 4;
+    private static final int CANCEL_STEP = 4096; // posiciones entre chequeos de cancelación (~ms)
+
+    private final int depth;
+
+    public LzssStrategy() { this(WINDOW); }
+
+    public LzssStrategy(int depth) {
+        if (depth <= 0) throw new IllegalArgumentException("Profundidad LZSS inválida: " + depth);
+        this.depth = Math.min(depth, WINDOW);
+    }
 
     @Override public AlgorithmId id(){ return AlgorithmId.LZSS; }
+    // Búsqueda exhaustiva en la ventana: ~0.1 MB/s al comprimir.
+    @Override public Capabilities capabilities(){
+        return new Capabilities(Capabilities.RatioClass.MEDIUM, 0.1, 50, 2, false);
+    }
 
-    @Override public byte[] compress(byte[] in) {
+    @Override public CompressorStrategy withEffort(int level, int depth) {
+        return depth > 0 && Math.min(depth, WINDOW) != this.depth ? new LzssStrategy(depth) : this;
+    }
+
+    @Override public byte[] compress(byte[] in) throws InterruptedIOException {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
-        int pos = 0;
+        int pos = 0, next = CANCEL_STEP;
         while (pos < in.length) {
+            if (pos >= next) { checkCancelled(); next = pos + CANCEL_STEP; }
             int bestDist = 0, bestLen = 0;
-            int start = Math.max(0, pos - WINDOW);
+            int start = Math.max(0, pos - depth);
             for (int j = start; j < pos; j++) {
                 int len = 0;
                 while (len < LOOK && pos + len < in.length && in[j + len] == in[pos + len]) len++;
@@ -34,26 +60,36 @@ public final class LzssStrategy implements CompressorStrategy {
         return out.toByteArray();
     }
 
+    // Salida en arreglo que crece al doble: las referencias pueden solaparse (len > dist)
+    // y deben leer bytes que se acaban de escribir.
     @Override public byte[] decompress(byte[] in) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        int i = 0;
+        byte[] out = new byte[Math.max(1024, in.length * 2)];
+        int outLen = 0;
+        int i = 0, next = CANCEL_STEP * 16;
         while (i < in.length) {
+            if (i >= next) { checkCancelled(); next = i + CANCEL_STEP * 16; }
             int flag = in[i++] & 0xFF;
             if (flag == 1) {
                 if (i >= in.length) throw new IOException("LZSS literal fuera de rango");
-                out.write(in[i++] & 0xFF);
+                if (outLen >= out.length) out = Arrays.copyOf(out, out.length * 2);
+                out[outLen++] = in[i++];
             } else if (flag == 0) {
                 if (i + 2 >= in.length) throw new IOException("LZSS referencia truncada");
                 int dist = ((in[i++] & 0xFF) << 8) | (in[i++] & 0xFF);
                 int len  = in[i++] & 0xFF;
-                int start = out.size() - dist;
-                if (start < 0) throw new IOException("Distancia inválida en LZSS");
-                byte[] buf = out.toByteArray();
-                for (int k = 0; k < len; k++) out.write(buf[start + k]);
+                int start = outLen - dist;
+                // dist 0 leería el byte que se está por escribir; len 0 no avanza: el compresor no los emite.
+                if (dist == 0 || len == 0 || start < 0) throw new IOException("Distancia inválida en LZSS");
+                if (outLen + len > out.length) out = Arrays.copyOf(out, Math.max(out.length * 2, outLen + len));
+                for (int k = 0; k < len; k++) out[outLen++] = out[start + k];
             } else {
                 throw new IOException("Flag LZSS inválido: " + flag);
             }
         }
-        return out.toByteArray();
+        return Arrays.copyOf(out, outLen);
+    }
+
+    private static void checkCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedIOException("Operación cancelada");
     }
 }
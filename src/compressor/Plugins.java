@@ -0,0 +1,41 @@
+package compressor;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.function.Consumer;
+
+/**
+ * Carga de plugins con ServiceLoader para los registros. Un plugin roto (clase ausente,
+ * constructor que falla, marker()/id() inválidos) se informa y se ignora: nunca debe
+ * tumbar el inicializador estático del registro, porque con él caerían todos los
+ * caminos de compresión y descompresión.
+ */
+final class Plugins {
+    private Plugins(){}
+
+    /** Tras tantos errores seguidos se deja de iterar (ServiceLoader no garantiza recuperarse). */
+    private static final int MAX_ERRORS = 32;
+
+    static <T> void load(Class<T> type, String tag, Consumer<T> register) {
+        Iterator<T> it = ServiceLoader.load(type).iterator();
+        int errors = 0;
+        while (errors < MAX_ERRORS) {
+            T p;
+            try {
+                if (!it.hasNext()) return;
+                p = it.next();
+            } catch (ServiceConfigurationError | RuntimeException e) {
+                System.err.println("[" + tag + "] error cargando plugin: " + e.getMessage());
+                errors++;
+                continue;
+            }
+            errors = 0;
+            try {
+                register.accept(p);
+            } catch (RuntimeException e) {
+                System.err.println("[" + tag + "] ignorado " + p.getClass().getName() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package compressor;
+
+import java.io.IOException;
+
+/**
+ * Transformación reversible que se aplica a los datos antes del códec (y a la inversa
+ * después de expandir) para que los LZ encuentren más repeticiones: direcciones de
+ * llamadas x86, enteros/floats en columnas, muestras correlativas. No cambia el tamaño.
+ *
+ * Como los códecs, los propios se registran en FilterRegistry y los externos se
+ * descubren con ServiceLoader (META-INF/services/compressor.PreFilter). El contenedor
+ * guarda id() y el parámetro de cada filtro aplicado.
+ */
+public interface PreFilter {
+    /** Identificador grabado en el contenedor (1..255; 0 reservado). */
+    byte id();
+
+    /** Nombre corto para -Dsfe.filter, logs y métricas (minúsculas). */
+    String name();
+
+    /** Parámetro cuando -Dsfe.filter no lo indica. */
+    default int defaultParam() { return 0; }
+
+    /** Si el parámetro (0..255) es válido para este filtro. */
+    default boolean accepts(int param) { return param == 0; }
+
+    /**
+     * Detección rápida sobre una muestra: el parámetro a usar, o -1 si no aplica. Los
+     * propios de datos numéricos (delta, split) los elige archivos.PreFilters por entropía.
+     */
+    default int detect(byte[] sample) { return -1; }
+
+    byte[] forward(byte[] data, int param);
+
+    byte[] inverse(byte[] data, int param) throws IOException;
+}
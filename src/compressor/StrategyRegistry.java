@@ -1,17 +1,48 @@
 package compressor;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Registro de códecs: los propios (LZSS, DEFLATE, EXTERNAL, BWT, CM) más los que se encuentren
+ * con ServiceLoader en el classpath/module path al cargar la clase. Agregar un códec
+ * es desplegar su jar; el núcleo no cambia.
+ *
+ * Cada marcador identifica un solo códec. 0 y 1 quedan reservados para LZSS antiguo
+ * (sin marcador) y 'M' para el payload MIXTO de FileCompressor.
+ */
 public final class StrategyRegistry {
     private static final List<CompressorStrategy> STRATS = new ArrayList<>();
+    private static final CompressorStrategy[] BY_MARKER = new CompressorStrategy[256];
     static {
-        // Orden de prueba (puedes reordenar si tu EXTERNAL es mejor)
-        STRATS.add(new LzssStrategy());
-        STRATS.add(new DeflateStrategy());
-        STRATS.add(new ExternalAdapter()); // <-- tu compresor “bueno”
+        // Orden de prueba a igual costo (puedes reordenar si tu EXTERNAL es mejor)
+        register(new LzssStrategy());
+        register(new DeflateStrategy());
+        register(new ExternalAdapter()); // <-- tu compresor “bueno”
+        register(new BwtStrategy());
+        register(new CmStrategy());
+        Plugins.load(CompressorStrategy.class, "CODEC", StrategyRegistry::register);
     }
     private StrategyRegistry(){}
 
-    public static List<CompressorStrategy> all(){ return STRATS; }
+    /** Registra un códec; falla si su marcador está reservado o en uso. */
+    public static synchronized void register(CompressorStrategy s) {
+        int m = s.marker() & 0xFF;
+        if (m == 0 || m == 1 || m == (AlgorithmId.MIXED.marker & 0xFF)) {
+            throw new IllegalArgumentException("marcador reservado: " + m);
+        }
+        CompressorStrategy prev = BY_MARKER[m];
+        if (prev != null) {
+            if (prev.getClass() == s.getClass()) return; // mismo códec visto dos veces
+            throw new IllegalArgumentException("marcador " + m + " ya usado por " + prev.name());
+        }
+        BY_MARKER[m] = s;
+        STRATS.add(s);
+    }
+
+    public static synchronized List<CompressorStrategy> all(){ return Collections.unmodifiableList(new ArrayList<>(STRATS)); }
+
+    /** Códec dueño del marcador, o null. */
+    public static synchronized CompressorStrategy byMarker(byte marker) { return BY_MARKER[marker & 0xFF]; }
 }
@@ -0,0 +1,168 @@
+package crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * AES-256-CTR sobre javax.crypto (HotSpot usa intrínsecos AES-NI para CTR).
+ *
+ * Sobre cifrado (va al inicio del payload del contenedor):
+ *   SALT(16) | ITER(4, big-endian) | NONCE(16) | CIPHERTEXT
+ *
+ * encrypt/decrypt trabajan sobre arreglos completos; newHeader + cipher dan un
+ * StreamCipher para cifrar por trozos (ver CipherStreams).
+ *
+ * La clave sale de PBKDF2-HMAC-SHA256(password, SALT, ITER). Derivarla es caro a
+ * propósito, así que en un mismo proceso se reutiliza un SALT por contraseña y la clave
+ * derivada queda en caché: un lote paga el KDF una sola vez. La unicidad la da el
+ * NONCE aleatorio por archivo (contador inicial de CTR).
+ *
+ * Ambas cachés son LRU pequeñas indexadas por un SHA-256 (con un secreto aleatorio del
+ * proceso) de iteraciones, salt y contraseña: no guardan la contraseña y los intentos con
+ * contraseñas incorrectas no las hacen crecer. ITER viene de la cabecera sin autenticar,
+ * así que se rechaza por encima de MAX_ITERATIONS (un bit dañado no dispara horas de KDF).
+ */
+public final class AesCtr {
+    private AesCtr(){}
+
+    public static final int SALT_LEN = 16, NONCE_LEN = 16;
+    public static final int HEADER_LEN = SALT_LEN + 4 + NONCE_LEN;
+    private static final int ITERATIONS = 200_000, MAX_ITERATIONS = 10 * ITERATIONS;
+    private static final int CHUNK = 1 << 20; // se cifra por bloques de 1 MB (streaming)
+
+    private static final SecureRandom RNG = new SecureRandom();
+    private static final int CACHE_SIZE = 16;
+    private static final byte[] PEPPER = randomBytes(32);
+    private static final Map<String, byte[]> SESSION_SALT = lru(CACHE_SIZE);
+    private static final Map<String, SecretKeySpec> KEYS = lru(CACHE_SIZE);
+
+    public static byte[] encrypt(byte[] plain, String password) {
+        byte[] header = newHeader(password);
+        byte[] out = new byte[HEADER_LEN + plain.length];
+        System.arraycopy(header, 0, out, 0, HEADER_LEN);
+        System.arraycopy(plain, 0, out, HEADER_LEN, plain.length);
+        cipher(key(password, Arrays.copyOfRange(header, 0, SALT_LEN), ITERATIONS),
+                Arrays.copyOfRange(header, SALT_LEN + 4, HEADER_LEN)).apply(out, HEADER_LEN, plain.length);
+        return out;
+    }
+
+    public static byte[] decrypt(byte[] envelope, String password) throws IOException {
+        if (envelope.length < HEADER_LEN) throw new IOException("Sobre AES truncado");
+        byte[] out = Arrays.copyOfRange(envelope, HEADER_LEN, envelope.length);
+        cipher(password, envelope).apply(out, 0, out.length);
+        return out;
+    }
+
+    /** Cabecera nueva SALT|ITER|NONCE (salt de la sesión para esa contraseña, nonce aleatorio). */
+    public static byte[] newHeader(String password) {
+        byte[] salt;
+        synchronized (SESSION_SALT) { salt = SESSION_SALT.computeIfAbsent(cacheKey(password, null, 0), k -> randomBytes(SALT_LEN)); }
+        byte[] h = new byte[HEADER_LEN];
+        System.arraycopy(salt, 0, h, 0, SALT_LEN);
+        putInt(h, SALT_LEN, ITERATIONS);
+        System.arraycopy(randomBytes(NONCE_LEN), 0, h, SALT_LEN + 4, NONCE_LEN);
+        return h;
+    }
+
+    /** Cifrado de flujo AES-CTR para la cabecera dada (mismo objeto cifra o descifra). */
+    public static StreamCipher cipher(String password, byte[] header) throws IOException {
+        if (header.length < HEADER_LEN) throw new IOException("Sobre AES truncado");
+        int iter = getInt(header, SALT_LEN);
+        if (iter <= 0 || iter > MAX_ITERATIONS) throw new IOException("Iteraciones PBKDF2 inválidas: " + iter);
+        return cipher(key(password, Arrays.copyOfRange(header, 0, SALT_LEN), iter),
+                Arrays.copyOfRange(header, SALT_LEN + 4, HEADER_LEN));
+    }
+
+    private static StreamCipher cipher(SecretKeySpec key, byte[] nonce) {
+        Cipher c;
+        try {
+            c = Cipher.getInstance("AES/CTR/NoPadding");
+            c.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(nonce));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-CTR no disponible: " + e.getMessage(), e);
+        }
+        return new StreamCipher() {
+            private long pos;
+            @Override public void apply(byte[] b, int off, int len) {
+                try {
+                    // CTR admite entrada y salida en el mismo arreglo; se pasa por trozos de 1 MB.
+                    for (int done = 0; done < len; ) {
+                        int n = Math.min(CHUNK, len - done);
+                        done += c.update(b, off + done, n, b, off + done);
+                    }
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("AES-CTR: " + e.getMessage(), e);
+                }
+                pos += len;
+            }
+            @Override public long position() { return pos; }
+        };
+    }
+
+    static SecretKeySpec key(String password, byte[] salt, int iterations) {
+        String k = cacheKey(password, salt, iterations);
+        synchronized (KEYS) {
+            SecretKeySpec hit = KEYS.get(k);
+            if (hit != null) return hit;
+        }
+        SecretKeySpec key; // el KDF corre fuera del candado: no bloquea a otras contraseñas
+        try {
+            SecretKeyFactory f = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+            byte[] raw = f.generateSecret(new PBEKeySpec(password.toCharArray(), salt, iterations, 256)).getEncoded();
+            key = new SecretKeySpec(raw, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 no disponible: " + e.getMessage(), e);
+        }
+        synchronized (KEYS) { KEYS.put(k, key); }
+        return key;
+    }
+
+    /** SHA-256(PEPPER | ITER | SALT | password) en hex: clave de caché sin la contraseña. */
+    private static String cacheKey(String password, byte[] salt, int iterations) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(PEPPER);
+            md.update(ByteBuffer.allocate(4).putInt(iterations).array());
+            if (salt != null) md.update(salt);
+            md.update(password.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(md.digest());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 no disponible: " + e.getMessage(), e);
+        }
+    }
+
+    /** LinkedHashMap en orden de acceso que descarta la entrada más vieja; usar bajo su propio candado. */
+    private static <V> Map<String, V> lru(int max) {
+        return new LinkedHashMap<>(max, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override protected boolean removeEldestEntry(Map.Entry<String, V> e) { return size() > max; }
+        };
+    }
+
+    private static byte[] randomBytes(int n) {
+        byte[] b = new byte[n];
+        RNG.nextBytes(b);
+        return b;
+    }
+
+    private static void putInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24); b[off + 1] = (byte) (v >>> 16); b[off + 2] = (byte) (v >>> 8); b[off + 3] = (byte) v;
+    }
+
+    private static int getInt(byte[] b, int off) {
+        return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,16 @@
+package crypto;
+
+import java.util.Locale;
+
+/** Cifrado del payload de un contenedor encriptado. */
+public enum CipherMode {
+    /** XOR con keystream LCG (formato original; se mantiene para leer archivos existentes). */
+    XOR_LCG,
+    /** AES-256-CTR con clave PBKDF2 y nonce por archivo (marcado con FLAGS bit2). */
+    AES_CTR;
+
+    /** Modo por defecto para archivos nuevos: -Dsfe.cipher=AES_CTR|XOR_LCG (AES_CTR si no se indica). */
+    public static CipherMode defaultMode() {
+        return valueOf(System.getProperty("sfe.cipher", "AES_CTR").toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,84 @@
+package crypto;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Adaptadores de StreamCipher sobre streams y canales. Los datos del llamador nunca se
+ * modifican al escribir: se copian por trozos a un buffer interno y se cifran ahí.
+ */
+public final class CipherStreams {
+    private CipherStreams(){}
+
+    private static final int BUF = 64 * 1024;
+
+    /** Cifra (o descifra) todo lo que se escribe antes de pasarlo a out. */
+    public static OutputStream output(OutputStream out, StreamCipher cipher) {
+        return new FilterOutputStream(out) {
+            private final byte[] buf = new byte[BUF];
+            @Override public void write(int b) throws IOException {
+                buf[0] = (byte) b;
+                cipher.apply(buf, 0, 1);
+                out.write(buf[0]);
+            }
+            @Override public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    int n = Math.min(len, buf.length);
+                    System.arraycopy(b, off, buf, 0, n);
+                    cipher.apply(buf, 0, n);
+                    out.write(buf, 0, n);
+                    off += n; len -= n;
+                }
+            }
+        };
+    }
+
+    /** Descifra (o cifra) lo que se lee de in, directamente en el arreglo del llamador. */
+    public static InputStream input(InputStream in, StreamCipher cipher) {
+        return new FilterInputStream(in) {
+            @Override public int read() throws IOException {
+                int b = in.read();
+                if (b < 0) return b;
+                byte[] one = {(byte) b};
+                cipher.apply(one, 0, 1);
+                return one[0] & 0xFF;
+            }
+            @Override public int read(byte[] b, int off, int len) throws IOException {
+                int n = in.read(b, off, len);
+                if (n > 0) cipher.apply(b, off, n);
+                return n;
+            }
+            @Override public long skip(long n) throws IOException {
+                throw new IOException("skip no soportado en un flujo cifrado");
+            }
+            @Override public boolean markSupported() { return false; }
+        };
+    }
+
+    /** Canal que cifra lo que recibe antes de escribirlo en ch (write escribe todo). */
+    public static WritableByteChannel channel(WritableByteChannel ch, StreamCipher cipher) {
+        return new WritableByteChannel() {
+            private final ByteBuffer buf = ByteBuffer.allocate(BUF);
+            @Override public int write(ByteBuffer src) throws IOException {
+                int total = src.remaining();
+                while (src.hasRemaining()) {
+                    buf.clear();
+                    int n = Math.min(buf.remaining(), src.remaining());
+                    ByteBuffer slice = src.slice(src.position(), n);
+                    buf.put(slice).flip();
+                    src.position(src.position() + n);
+                    cipher.apply(buf.array(), 0, n);
+                    while (buf.hasRemaining()) ch.write(buf);
+                }
+                return total;
+            }
+            @Override public boolean isOpen() { return ch.isOpen(); }
+            @Override public void close() throws IOException { ch.close(); }
+        };
+    }
+}
@@ -6,4 +6,14 @@ public final class Decryptor {
     public static byte[] decrypt(byte[] data, String password){
         return Encryptor.encrypt(data, password); // XOR simétrico
     }
+
+    /**
+     * Descifra solo cipher[off, off+len), sabiendo que ese trozo empieza en la posición
+     * streamOffset del flujo cifrado (p.ej. off - cabecera). No regenera lo anterior.
+     */
+    public static byte[] decryptRange(byte[] cipher, int off, int len, long streamOffset, String password){
+        byte[] out = new byte[len];
+        Encryptor.cryptRange(password, streamOffset, cipher, off, out, 0, len);
+        return out;
+    }
 }
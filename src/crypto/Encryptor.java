@@ -1,26 +1,119 @@
 package crypto;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
 
+/**
+ * Cifrado XOR con keystream LCG (formato original).
+ *
+ * El byte i del keystream es el byte bajo de lcg^(i+1)(seed). Como el LCG es afín,
+ * lcg^n se compone en O(log n) (jump-ahead): eso permite cifrar por trozos en
+ * paralelo y descifrar un rango cualquiera sin recorrer lo anterior. La salida es
+ * idéntica byte a byte a la del bucle secuencial.
+ *
+ * Además, el byte bajo de un LCG módulo 2^64 solo depende del byte bajo del estado,
+ * así que el keystream se repite cada 256 bytes. El núcleo arma esa tabla una vez por
+ * llamada y aplica el XOR de a 8 bytes con vistas long (VarHandle). Esa periodicidad
+ * es justamente la debilidad del formato: para datos nuevos usar AES-CTR.
+ */
 public final class Encryptor {
     private Encryptor(){}
 
+    static final long MUL = 6364136223846793005L, INC = 1442695040888963407L;
+
+    /** A partir de este tamaño se reparte en trozos entre hilos (ForkJoin común). */
+    static final int PARALLEL_MIN = 1 << 20;
+    private static final int CHUNK = 256 * 1024;
+    private static final int PERIOD = 256;
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
     public static byte[] encrypt(byte[] data, String password){
         byte[] out = new byte[data.length];
         long s = seed(password);
-        for (int i=0;i<data.length;i++){
-            s = lcg(s);
-            out[i] = (byte) (data[i] ^ (byte)(s & 0xFF));
+        if (data.length >= PARALLEL_MIN && Runtime.getRuntime().availableProcessors() > 1) {
+            int chunks = (data.length + CHUNK - 1) / CHUNK;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int off = c * CHUNK;
+                xor(jump(s, off), data, off, out, off, Math.min(CHUNK, data.length - off));
+            });
+        } else {
+            xor(s, data, 0, out, 0, data.length);
         }
         return out;
     }
 
+    /**
+     * Cifra/descifra (XOR simétrico) len bytes de src que ocupan la posición streamOffset
+     * del flujo cifrado, escribiéndolos en dst. Sirve para descifrar un rango suelto.
+     */
+    public static void cryptRange(String password, long streamOffset, byte[] src, int srcOff, byte[] dst, int dstOff, int len){
+        xor(keystreamState(password, streamOffset), src, srcOff, dst, dstOff, len);
+    }
+
+    /** Cifra/descifra en el mismo buffer desde el inicio del flujo (sin copia de tamaño completo). */
+    public static void cryptInPlace(byte[] buf, int off, int len, String password){
+        xor(seed(password), buf, off, buf, off, len);
+    }
+
+    /** Estado del generador justo antes de producir el byte de la posición offset. */
+    public static long keystreamState(String password, long offset){
+        if (offset < 0) throw new IllegalArgumentException("offset negativo: " + offset);
+        return jump(seed(password), offset);
+    }
+
+    /** lcg aplicado n veces a x en O(log n): se compone la función afín (a, c) por cuadrados. */
+    static long jump(long x, long n){
+        long accMul = 1, accInc = 0;      // identidad
+        long curMul = MUL, curInc = INC;  // lcg^(2^k)
+        while (n != 0) {
+            if ((n & 1) != 0) {
+                accMul = curMul * accMul;
+                accInc = curMul * accInc + curInc;
+            }
+            curInc = (curMul + 1) * curInc;
+            curMul = curMul * curMul;
+            n >>>= 1;
+        }
+        return accMul * x + accInc;
+    }
+
+    /**
+     * Núcleo: s es el estado antes del primer byte; src y dst pueden ser el mismo buffer
+     * con el mismo offset. Devuelve el estado tras len bytes.
+     */
+    static long xor(long s, byte[] src, int srcOff, byte[] dst, int dstOff, int len){
+        if (len < 64) return xorBytes(s, src, srcOff, dst, dstOff, len);
+        // Dos vueltas de la tabla: una lectura long desde cualquier fase p < 256 no se sale.
+        byte[] ks = new byte[2 * PERIOD];
+        long t = s;
+        for (int j = 0; j < PERIOD; j++) { t = lcg(t); ks[j] = ks[j + PERIOD] = (byte) t; }
+        int i = 0, p = 0;
+        for (int end = len - 7; i < end; i += 8) {
+            long v = (long) LONG.get(src, srcOff + i);
+            LONG.set(dst, dstOff + i, v ^ (long) LONG.get(ks, p));
+            p = (p + 8) & (PERIOD - 1);
+        }
+        for (; i < len; i++, p = (p + 1) & (PERIOD - 1)) dst[dstOff + i] = (byte) (src[srcOff + i] ^ ks[p]);
+        return jump(s, len);
+    }
+
+    /** Bucle original de a un byte (referencia y trozos chicos). */
+    static long xorBytes(long s, byte[] src, int srcOff, byte[] dst, int dstOff, int len){
+        for (int i = 0; i < len; i++){
+            s = lcg(s);
+            dst[dstOff + i] = (byte) (src[srcOff + i] ^ (byte)(s & 0xFF));
+        }
+        return s;
+    }
+
     static long seed(String pw){
         byte[] k = pw.getBytes(StandardCharsets.UTF_8);
         long s = 1469598103934665603L; // FNV offset
         for (byte b: k){ s ^= (b & 0xFF); s *= 1099511628211L; }
         return s;
     }
-    static long lcg(long x){ return (6364136223846793005L * x + 1442695040888963407L); }
+    static long lcg(long x){ return (MUL * x + INC); }
 }
-
@@ -0,0 +1,50 @@
+package crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cifrado de flujo con estado: cada llamada continúa el keystream donde quedó la
+ * anterior, así se puede cifrar por trozos (streams, canales) con memoria constante.
+ * Cifrar y descifrar son la misma operación (XOR con el keystream).
+ */
+public interface StreamCipher {
+
+    /** Transforma en el lugar b[off, off+len). */
+    void apply(byte[] b, int off, int len);
+
+    /** Bytes procesados desde el inicio del flujo. */
+    long position();
+
+    /** Transforma en el lugar los bytes restantes de buf y deja position = limit. */
+    default void apply(ByteBuffer buf) {
+        if (buf.hasArray()) {
+            apply(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+            buf.position(buf.limit());
+            return;
+        }
+        byte[] tmp = new byte[Math.min(buf.remaining(), 16 * 1024)];
+        while (buf.hasRemaining()) {
+            int n = Math.min(tmp.length, buf.remaining());
+            int p = buf.position();
+            buf.get(tmp, 0, n);
+            apply(tmp, 0, n);
+            buf.put(p, tmp, 0, n);
+        }
+    }
+
+    /** Keystream XOR-LCG del formato original, desde el inicio del flujo. */
+    static StreamCipher lcg(String password) { return lcg(password, 0); }
+
+    /** Keystream XOR-LCG posicionado en offset (jump-ahead, sin recorrer lo anterior). */
+    static StreamCipher lcg(String password, long offset) {
+        long s0 = Encryptor.keystreamState(password, offset);
+        return new StreamCipher() {
+            private long state = s0, pos = offset;
+            @Override public void apply(byte[] b, int off, int len) {
+                state = Encryptor.xor(state, b, off, b, off, len);
+                pos += len;
+            }
+            @Override public long position() { return pos; }
+        };
+    }
+}
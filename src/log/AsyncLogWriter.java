@@ -0,0 +1,422 @@
+package log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Escritor asíncrono del log de operaciones.
+ *
+ *  - Los hilos que registran operaciones solo copian los campos a una ranura de un
+ *    ring buffer sin locks (multi-productor / un consumidor, secuencias por ranura).
+ *    No se formatea ni se hace I/O en el hilo llamador.
+ *  - Un único hilo escritor drena el buffer, formatea las líneas y las escribe por
+ *    grupos en un FileChannel que se abre una sola vez (modo append).
+ *  - El grupo se vuelca cuando junta {@code batch} entradas o pasan {@code flushMillis}.
+ *  - Durabilidad: BUFFERED (write al SO) o FSYNC (además force() tras cada grupo).
+ *  - Al cerrar (o al apagar la JVM) se drena todo lo pendiente antes de cerrar el canal.
+ *  - Si el escritor muere (disco lleno, error al rotar) las operaciones siguientes se
+ *    descartan y se avisa una sola vez: publish nunca queda esperando a un escritor muerto.
+ *  - Formato JSONL (un objeto por línea, por defecto) o TEXT (formato legible anterior).
+ *  - Rotación por tamaño (maxBytes) y/o por tiempo (rotateMillis); los segmentos rotados
+ *    se comprimen con gzip en segundo plano (ver {@link LogSegments}).
+ *
+ * Configuración por propiedades del sistema (ver {@link Config#fromSystemProperties()}):
+ *   sfe.log.file, sfe.log.format, sfe.log.durability, sfe.log.batch, sfe.log.flushMillis,
+ *   sfe.log.capacity, sfe.log.maxBytes, sfe.log.rotateHours
+ */
+public final class AsyncLogWriter implements AutoCloseable {
+
+    public enum Durability { BUFFERED, FSYNC }
+    public enum Format { JSONL, TEXT }
+
+    /** Parámetros del escritor (mismo estilo fluido que BatchConfig). */
+    public static final class Config {
+        public Path file = Paths.get("operaciones.jsonl");
+        public Format format = Format.JSONL;
+        public Durability durability = Durability.BUFFERED;
+        public int capacity = 8192;
+        public int batch = 256;
+        public long flushMillis = 200;
+        public long maxBytes = 64L * 1024 * 1024;     // 0 = sin rotación por tamaño
+        public long rotateMillis = 24L * 3600 * 1000; // 0 = sin rotación por tiempo
+
+        public Config file(Path p)             { this.file = p; return this; }
+        public Config format(Format f)         { this.format = f; return this; }
+        public Config durability(Durability d) { this.durability = d; return this; }
+        public Config capacity(int n)          { this.capacity = n; return this; }
+        public Config batch(int n)             { this.batch = n; return this; }
+        public Config flushMillis(long ms)     { this.flushMillis = ms; return this; }
+        public Config maxBytes(long n)         { this.maxBytes = n; return this; }
+        public Config rotateMillis(long ms)    { this.rotateMillis = ms; return this; }
+
+        /** El archivo por defecto depende del formato: operaciones.jsonl u operaciones.log. */
+        public static Config fromSystemProperties() {
+            Config c = new Config();
+            c.format = Format.valueOf(System.getProperty("sfe.log.format", "JSONL").toUpperCase(Locale.ROOT));
+            c.file = Paths.get(System.getProperty("sfe.log.file",
+                    c.format == Format.JSONL ? "operaciones.jsonl" : "operaciones.log"));
+            c.durability = Durability.valueOf(System.getProperty("sfe.log.durability", "BUFFERED").toUpperCase(Locale.ROOT));
+            c.capacity = Integer.getInteger("sfe.log.capacity", c.capacity);
+            c.batch = Integer.getInteger("sfe.log.batch", c.batch);
+            c.flushMillis = Long.getLong("sfe.log.flushMillis", c.flushMillis);
+            c.maxBytes = Long.getLong("sfe.log.maxBytes", c.maxBytes);
+            c.rotateMillis = Long.getLong("sfe.log.rotateHours", c.rotateMillis / 3_600_000L) * 3_600_000L;
+            return c;
+        }
+    }
+
+    private static final DateTimeFormatter TS =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    /** Ranura preasignada del ring buffer (se reutiliza: el productor no asigna memoria). */
+    private static final class Slot {
+        long millis;
+        String in, out, alg, mode, route;
+        long sizeIn, sizeOut;
+        double ratio;
+    }
+
+    private final Path file;
+    private final Format format;
+    private final Durability durability;
+    private final int batch;
+    private final long flushNanos;
+    private final long maxBytes;
+    private final long rotateMillis;
+
+    private final Slot[] slots;
+    private final AtomicLongArray seq;   // secuencia por ranura (protocolo de cola acotada de Vyukov)
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // próxima posición a reclamar por productores
+    private long head = 0;                             // próxima posición a leer (solo el escritor)
+
+    private final Thread writer;
+    private volatile boolean closing = false;
+    private final AtomicLong written = new AtomicLong(); // posiciones ya persistidas (para flush())
+    private volatile String failure;                     // motivo por el que terminó el escritor
+    private final AtomicBoolean lostReported = new AtomicBoolean();
+
+    private FileChannel channel;
+    private final StringBuilder sb = new StringBuilder(256);
+    private ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+    private int pending = 0;
+    private long lastFlush = System.nanoTime();
+    private long tsSecond = Long.MIN_VALUE;  // caché del timestamp formateado (resolución 1 s)
+    private String tsText = "";
+    private long segBytes = 0;                 // tamaño del segmento activo
+    private long segBucket = Long.MIN_VALUE;   // periodo (rotateMillis) del segmento activo
+
+    public AsyncLogWriter(Config cfg) {
+        this.file = cfg.file;
+        this.format = cfg.format;
+        this.durability = cfg.durability;
+        this.batch = Math.max(1, cfg.batch);
+        this.flushNanos = Math.max(1, cfg.flushMillis) * 1_000_000L;
+        this.maxBytes = Math.max(0, cfg.maxBytes);
+        this.rotateMillis = Math.max(0, cfg.rotateMillis);
+        int capacity = cfg.capacity;
+
+        int cap = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Slot[cap];
+        this.seq = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) { slots[i] = new Slot(); seq.set(i, i); }
+        this.mask = cap - 1;
+
+        LogSegments.compressLeftovers(file);
+        this.writer = new Thread(this::runWriter, "sfe-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /** Instancia compartida (se crea al primer uso y se drena al apagar la JVM). */
+    public static AsyncLogWriter shared() { return Holder.INSTANCE; }
+
+    private static final class Holder {
+        static final AsyncLogWriter INSTANCE = fromSystemProperties();
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::close, "sfe-log-drain"));
+        }
+    }
+
+    static AsyncLogWriter fromSystemProperties() {
+        return new AsyncLogWriter(Config.fromSystemProperties());
+    }
+
+    /** Ruta del segmento activo (para consultas). */
+    public Path file() { return file; }
+
+    // ====== Lado productor (cualquier hilo) ======
+
+    /** Publica una operación sin ruta de la política (descompresiones). */
+    public void publish(long millis, String in, String out, String alg, String mode,
+                        long sizeIn, long sizeOut, double ratio) {
+        publish(millis, in, out, alg, mode, null, sizeIn, sizeOut, ratio);
+    }
+
+    /**
+     * Publica una operación; route es la decisión de la política adaptativa (PROBE, STORED,
+     * un códec o SNIFF) o null. Solo bloquea (spin/park) si el buffer está lleno y el escritor
+     * sigue vivo; con el escritor muerto la operación se descarta.
+     */
+    public void publish(long millis, String in, String out, String alg, String mode, String route,
+                        long sizeIn, long sizeOut, double ratio) {
+        if (closing) { System.err.println("No se pudo escribir en el log: escritor cerrado"); return; }
+        if (!writer.isAlive()) { reportLost(); return; }
+        long pos = tail.getAndIncrement();
+        int idx = (int) pos & mask;
+        int spins = 0;
+        while (seq.get(idx) != pos) {          // ranura aún ocupada: buffer lleno
+            // Nadie va a liberar la ranura (falló, o terminó de drenar en close()): se descarta.
+            if (!writer.isAlive()) { reportLost(); return; }
+            if (++spins < 100) Thread.onSpinWait();
+            else { LockSupport.unpark(writer); LockSupport.parkNanos(10_000); }
+        }
+        Slot s = slots[idx];
+        s.millis = millis; s.in = in; s.out = out; s.alg = alg; s.mode = mode; s.route = route;
+        s.sizeIn = sizeIn; s.sizeOut = sizeOut; s.ratio = ratio;
+        seq.lazySet(idx, pos + 1);             // publicar (release)
+    }
+
+    private void reportLost() {
+        if (lostReported.compareAndSet(false, true)) {
+            System.err.println("No se pudo escribir en el log: el escritor terminó"
+                    + (failure != null ? " (" + failure + ")" : "") + "; se descartan las operaciones siguientes");
+        }
+    }
+
+    /** Espera a que todo lo publicado hasta ahora esté escrito (y sincronizado si FSYNC). */
+    public void flush() {
+        long target = tail.get();
+        while (written.get() < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /** Drena lo pendiente, cierra el canal y detiene el hilo escritor. Idempotente. */
+    @Override public void close() {
+        closing = true;
+        LockSupport.unpark(writer);
+        try { writer.join(10_000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    // ====== Lado consumidor (hilo escritor) ======
+
+    private void runWriter() {
+        try {
+            while (true) {
+                int n = drain();
+                long now = System.nanoTime();
+                if (pending > 0 && (pending >= batch || now - lastFlush >= flushNanos || closing)) flushGroup();
+                if (n == 0) {
+                    if (closing && head == tail.get()) break;
+                    if (pending == 0) lastFlush = now;
+                    LockSupport.parkNanos(pending > 0 ? Math.min(flushNanos, 1_000_000L) : flushNanos);
+                }
+            }
+            if (pending > 0) flushGroup();
+        } catch (Throwable t) {
+            failure = String.valueOf(t.getMessage());
+            System.err.println("No se pudo escribir en el log: " + t.getMessage());
+        } finally {
+            closeChannel();
+        }
+    }
+
+    /** Lee hasta {@code batch} entradas publicadas y las formatea en el buffer del grupo. */
+    private int drain() {
+        int n = 0;
+        while (n < batch) {
+            int idx = (int) head & mask;
+            if (seq.get(idx) != head + 1) break;      // no publicada todavía
+            Slot s = slots[idx];
+            append(s);
+            s.in = s.out = s.alg = s.mode = s.route = null;
+            seq.lazySet(idx, head + slots.length);    // liberar ranura para la siguiente vuelta
+            head++;
+            n++;
+            pending++;
+        }
+        return n;
+    }
+
+    private void append(Slot s) {
+        if (rotateMillis > 0) {
+            long bucket = localBucket(s.millis);
+            if (segBucket == Long.MIN_VALUE) segBucket = inheritedBucket(bucket);
+            if (bucket != segBucket) {
+                writeBuffer();
+                rotate();
+                segBucket = bucket;
+            }
+        }
+        sb.setLength(0);
+        if (format == Format.JSONL) appendJson(s); else appendText(s);
+        byte[] line = sb.toString().getBytes(StandardCharsets.UTF_8);
+        if (line.length > buf.remaining()) {
+            writeBuffer();
+            if (line.length > buf.capacity()) buf = ByteBuffer.allocateDirect(Integer.highestOneBit(line.length) << 1);
+        }
+        buf.put(line);
+    }
+
+    private void appendText(Slot s) {
+        sb.append('[').append(timestamp(s.millis)).append("] modo=").append(s.mode)
+          .append(" | alg=").append(s.alg)
+          .append(" | in=").append(s.in).append(" (").append(s.sizeIn).append(" bytes)")
+          .append(" | out=").append(s.out).append(" (").append(s.sizeOut).append(" bytes)")
+          .append(" | ratio=");
+        appendFixed2(sb, s.ratio);
+        sb.append('%');
+        if (s.route != null) sb.append(" | ruta=").append(s.route);
+        sb.append('\n');
+    }
+
+    /**
+     * {"ts":..,"time":"..","mode":"..","alg":"..","ext":"..","in":"..","out":"..",
+     *  "sizeIn":..,"sizeOut":..,"ratio":..[,"route":".."]}
+     * route solo en compresiones: PROBE si se probaron todas las estrategias (lo único que
+     * AdaptivePolicy.fromLog aprende), si no la ruta impuesta por el historial o SNIFF.
+     * ext es la extensión del archivo original (entrada al comprimir, salida al descomprimir).
+     */
+    private void appendJson(Slot s) {
+        String orig = (s.mode != null && s.mode.startsWith("COMPRESS")) ? s.in : s.out;
+        sb.append("{\"ts\":").append(s.millis)
+          .append(",\"time\":\"").append(timestamp(s.millis)).append('"');
+        sb.append(",\"mode\":"); Json.appendString(sb, s.mode);
+        sb.append(",\"alg\":"); Json.appendString(sb, s.alg);
+        sb.append(",\"ext\":"); Json.appendString(sb, extOf(orig));
+        sb.append(",\"in\":"); Json.appendString(sb, s.in);
+        sb.append(",\"out\":"); Json.appendString(sb, s.out);
+        sb.append(",\"sizeIn\":").append(s.sizeIn)
+          .append(",\"sizeOut\":").append(s.sizeOut)
+          .append(",\"ratio\":");
+        if (Double.isFinite(s.ratio)) sb.append(s.ratio); else sb.append("null");
+        if (s.route != null) { sb.append(",\"route\":"); Json.appendString(sb, s.route); }
+        sb.append("}\n");
+    }
+
+    private String timestamp(long millis) {
+        long sec = Math.floorDiv(millis, 1000L);
+        if (sec != tsSecond) { tsSecond = sec; tsText = TS.format(Instant.ofEpochSecond(sec)); }
+        return tsText;
+    }
+
+    private long localBucket(long millis) {
+        long off = ZoneId.systemDefault().getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+        return Math.floorDiv(millis + off, rotateMillis);
+    }
+
+    private static String extOf(String path) {
+        if (path == null) return "";
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        int dot = path.lastIndexOf('.');
+        return (dot > slash + 1 && dot < path.length() - 1) ? path.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    /** Equivalente a String.format("%.2f") sin el costo del Formatter. */
+    private static void appendFixed2(StringBuilder sb, double v) {
+        if (!Double.isFinite(v) || Math.abs(v) >= 1e15) { sb.append(String.format(Locale.ROOT, "%.2f", v)); return; }
+        long c = Math.round(Math.abs(v) * 100.0);
+        if (v < 0 && c != 0) sb.append('-');
+        sb.append(c / 100).append('.');
+        long f = c % 100;
+        if (f < 10) sb.append('0');
+        sb.append(f);
+    }
+
+    private void flushGroup() {
+        writeBuffer();
+        if (durability == Durability.FSYNC && channel != null) {
+            try { channel.force(false); }
+            catch (IOException e) { System.err.println("No se pudo escribir en el log: " + e.getMessage()); }
+        }
+        written.set(head);
+        pending = 0;
+        lastFlush = System.nanoTime();
+    }
+
+    /** Un error de I/O descarta el grupo (se avisa por stderr) pero no detiene el escritor. */
+    private void writeBuffer() {
+        buf.flip();
+        try {
+            if (buf.hasRemaining()) {
+                if (channel == null) openChannel();
+                if (maxBytes > 0 && segBytes > 0 && segBytes + buf.remaining() > maxBytes) {
+                    rotate();
+                    openChannel();
+                }
+                while (buf.hasRemaining()) segBytes += channel.write(buf);
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo escribir en el log: " + e.getMessage());
+            closeQuietly();
+        } finally {
+            buf.clear();
+        }
+    }
+
+    private void openChannel() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        segBytes = channel.size();
+    }
+
+    /** Segmento heredado de una ejecución anterior: su periodo es el de su última escritura. */
+    private long inheritedBucket(long current) {
+        try {
+            if (Files.size(file) > 0) return localBucket(Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException ignored) {}
+        return current;
+    }
+
+    /** Cierra el segmento activo y lo rota (renombrar + gzip en segundo plano). */
+    private void rotate() {
+        try {
+            if (channel != null) {
+                if (durability == Durability.FSYNC) channel.force(false);
+                channel.close();
+                channel = null;
+            }
+            LogSegments.rotate(file, System.currentTimeMillis());
+        } catch (IOException e) {
+            System.err.println("No se pudo rotar el log: " + e.getMessage());
+            closeQuietly();
+        }
+        segBytes = 0;
+    }
+
+    private void closeQuietly() {
+        try { if (channel != null) channel.close(); } catch (IOException ignored) {}
+        channel = null;
+    }
+
+    private void closeChannel() {
+        written.set(Long.MAX_VALUE); // nadie debe quedarse esperando en flush()
+        if (channel != null) {
+            try {
+                if (durability == Durability.FSYNC) channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("No se pudo cerrar el log: " + e.getMessage());
+            }
+        }
+        LogSegments.awaitCompression(5_000);
+    }
+}
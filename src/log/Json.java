@@ -0,0 +1,105 @@
+package log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSON mínimo para el log estructurado: solo objetos planos con strings, números,
+ * true/false/null (es lo único que escribe {@link AsyncLogWriter}).
+ */
+public final class Json {
+    private Json(){}
+
+    static void appendString(StringBuilder sb, String s) {
+        if (s == null) { sb.append("null"); return; }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"'  -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /** Parsea una línea {"k":v,...}. Los valores se devuelven como texto (null para null). */
+    public static Map<String, String> parseFlat(String line) {
+        Map<String, String> m = new HashMap<>();
+        int[] pos = {skipWs(line, 0)};
+        expect(line, pos, '{');
+        if (peek(line, pos) == '}') return m;
+        while (true) {
+            String k = readString(line, pos);
+            expect(line, pos, ':');
+            m.put(k, readValue(line, pos));
+            char c = peek(line, pos);
+            pos[0]++;
+            if (c == '}') return m;
+            if (c != ',') throw new IllegalArgumentException("JSON inválido en columna " + pos[0]);
+            pos[0] = skipWs(line, pos[0]);
+        }
+    }
+
+    private static String readValue(String s, int[] pos) {
+        if (peek(s, pos) == '"') return readString(s, pos);
+        int start = pos[0];
+        while (pos[0] < s.length() && ",}".indexOf(s.charAt(pos[0])) < 0) pos[0]++;
+        String raw = s.substring(start, pos[0]).trim();
+        return raw.equals("null") ? null : raw;
+    }
+
+    private static String readString(String s, int[] pos) {
+        expect(s, pos, '"');
+        StringBuilder sb = null;
+        int start = pos[0];
+        while (pos[0] < s.length()) {
+            char c = s.charAt(pos[0]);
+            if (c == '"') {
+                String r = (sb == null) ? s.substring(start, pos[0]) : sb.toString();
+                pos[0]++;
+                return r;
+            }
+            if (c == '\\') {
+                if (sb == null) sb = new StringBuilder(s.substring(start, pos[0]));
+                char e = s.charAt(++pos[0]);
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> { sb.append((char) Integer.parseInt(s.substring(pos[0] + 1, pos[0] + 5), 16)); pos[0] += 4; }
+                    default -> sb.append(e);
+                }
+            } else if (sb != null) {
+                sb.append(c);
+            }
+            pos[0]++;
+        }
+        throw new IllegalArgumentException("String JSON sin cerrar");
+    }
+
+    private static char peek(String s, int[] pos) {
+        pos[0] = skipWs(s, pos[0]);
+        if (pos[0] >= s.length()) throw new IllegalArgumentException("JSON truncado");
+        return s.charAt(pos[0]);
+    }
+
+    private static void expect(String s, int[] pos, char c) {
+        if (peek(s, pos) != c) throw new IllegalArgumentException("Se esperaba '" + c + "' en columna " + pos[0]);
+        pos[0]++;
+    }
+
+    private static int skipWs(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i;
+    }
+}
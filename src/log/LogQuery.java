@@ -0,0 +1,140 @@
+package log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.IsoFields;
+import java.util.*;
+
+/**
+ * Consultas de agregación sobre el log estructurado (JSONL).
+ * Recorre los segmentos en streaming (línea a línea, .gz incluido) y solo mantiene
+ * en memoria un acumulador por grupo. Las líneas que no son JSON (formato TEXT
+ * anterior) o están dañadas se cuentan y se ignoran.
+ */
+public final class LogQuery {
+    private LogQuery(){}
+
+    public enum Key { ALG, MODE, EXT, HOUR, DAY, WEEK, MONTH }
+
+    private static final DateTimeFormatter HOUR  = DateTimeFormatter.ofPattern("yyyy-MM-dd HH':00'");
+    private static final DateTimeFormatter DAY   = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    // Semana ISO-8601 (lunes, semana 1 con el primer jueves): no depende del locale.
+    private static final DateTimeFormatter WEEK  = new DateTimeFormatterBuilder()
+            .appendValue(IsoFields.WEEK_BASED_YEAR, 4).appendLiteral("-W")
+            .appendValue(IsoFields.WEEK_OF_WEEK_BASED_YEAR, 2).toFormatter(Locale.ROOT);
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public static final class Query {
+        public final List<Key> by = new ArrayList<>();
+        public long since = Long.MIN_VALUE;   // epoch ms inclusive
+        public long until = Long.MAX_VALUE;   // epoch ms exclusivo
+        public String mode;                   // filtro opcional (exacto)
+        public String alg;
+        public String ext;
+
+        public Query by(Key... k)        { this.by.addAll(Arrays.asList(k)); return this; }
+        public Query since(long ms)      { this.since = ms; return this; }
+        public Query until(long ms)      { this.until = ms; return this; }
+        public Query mode(String m)      { this.mode = m; return this; }
+        public Query alg(String a)       { this.alg = a; return this; }
+        public Query ext(String e)       { this.ext = e; return this; }
+    }
+
+    /** Acumulado de un grupo. "saved" solo cuenta operaciones de compresión (in - out). */
+    public static final class Agg {
+        public long count, bytesIn, bytesOut, saved;
+        public double ratio() { return bytesIn == 0 ? 0.0 : (double) bytesOut / bytesIn; }
+    }
+
+    public static final class Result {
+        public final SortedMap<String, Agg> groups = new TreeMap<>();
+        public final Agg total = new Agg();
+        public long skippedLines, segmentsRead, segmentsSkipped;
+    }
+
+    public static Result run(Path activeLog, Query q) throws IOException {
+        Result r = new Result();
+        StringBuilder key = new StringBuilder();
+        ZoneId zone = ZoneId.systemDefault();
+        for (Path seg : LogSegments.list(activeLog)) {
+            // Un segmento rotado solo tiene registros anteriores a su instante de rotación.
+            long rotatedAt = rotatedAt(seg, zone);
+            if (rotatedAt < q.since) { r.segmentsSkipped++; continue; }
+            r.segmentsRead++;
+            try (BufferedReader br = LogSegments.open(seg)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.isEmpty()) continue;
+                    if (line.charAt(0) != '{') { r.skippedLines++; continue; }
+                    Map<String, String> m;
+                    long ts, in, out;
+                    try {
+                        m = Json.parseFlat(line);
+                        ts = Long.parseLong(m.get("ts"));
+                        in = Long.parseLong(m.get("sizeIn"));
+                        out = Long.parseLong(m.get("sizeOut"));
+                    } catch (RuntimeException e) {
+                        r.skippedLines++;
+                        continue;
+                    }
+                    if (ts < q.since || ts >= q.until) continue;
+                    String mode = m.getOrDefault("mode", "");
+                    if (q.mode != null && !q.mode.equalsIgnoreCase(mode)) continue;
+                    if (q.alg != null && !q.alg.equalsIgnoreCase(m.get("alg"))) continue;
+                    if (q.ext != null && !q.ext.equalsIgnoreCase(m.get("ext"))) continue;
+
+                    key.setLength(0);
+                    for (Key k : q.by) {
+                        if (key.length() > 0) key.append(" | ");
+                        key.append(keyOf(k, m, ts, zone));
+                    }
+                    Agg a = r.groups.computeIfAbsent(key.length() == 0 ? "(total)" : key.toString(), x -> new Agg());
+                    add(a, mode, in, out);
+                    add(r.total, mode, in, out);
+                }
+            }
+        }
+        return r;
+    }
+
+    private static void add(Agg a, String mode, long in, long out) {
+        a.count++;
+        a.bytesIn += in;
+        a.bytesOut += out;
+        if (mode != null && mode.startsWith("COMPRESS")) a.saved += in - out;
+    }
+
+    private static String keyOf(Key k, Map<String, String> m, long ts, ZoneId zone) {
+        return switch (k) {
+            case ALG  -> nz(m.get("alg"));
+            case MODE -> nz(m.get("mode"));
+            case EXT  -> nz(m.get("ext")).isEmpty() ? "(sin ext)" : m.get("ext");
+            case HOUR  -> HOUR.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(ts), zone));
+            case DAY   -> DAY.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(ts), zone));
+            case WEEK  -> WEEK.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(ts), zone));
+            case MONTH -> MONTH.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(ts), zone));
+        };
+    }
+
+    private static String nz(String s) { return s == null ? "" : s; }
+
+    /** Instante de rotación codificado en el nombre (base-yyyyMMdd-HHmmss...); MAX si es el activo. */
+    private static long rotatedAt(Path seg, ZoneId zone) {
+        String n = seg.getFileName().toString();
+        int dash = n.lastIndexOf('-');
+        if (dash < 9) return Long.MAX_VALUE;
+        try {
+            String stamp = n.substring(dash - 8, dash + 7);
+            return LocalDateTime.parse(stamp, STAMP).atZone(zone).toInstant().toEpochMilli();
+        } catch (RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
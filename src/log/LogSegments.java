@@ -0,0 +1,138 @@
+package log;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Segmentos del log de operaciones.
+ *
+ *   activo : operaciones.jsonl
+ *   rotados: operaciones-yyyyMMdd-HHmmss.jsonl.gz  (se comprimen en segundo plano)
+ *
+ * El sello del nombre es el instante de rotación, así el orden alfabético es cronológico.
+ */
+public final class LogSegments {
+    private LogSegments(){}
+
+    private static final DateTimeFormatter STAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneId.systemDefault());
+
+    private static final ExecutorService GZIP = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sfe-log-gzip");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Renombra el segmento activo y programa su compresión. Devuelve la ruta rotada. */
+    static Path rotate(Path active, long nowMillis) throws IOException {
+        if (!Files.exists(active)) return null;
+        String[] be = baseAndExt(active);
+        Path dir = parentOf(active);
+        String stamp = STAMP.format(Instant.ofEpochMilli(nowMillis));
+        Path target = dir.resolve(be[0] + "-" + stamp + be[1]);
+        for (int i = 1; Files.exists(target) || Files.exists(gzOf(target)); i++) {
+            target = dir.resolve(be[0] + "-" + stamp + "_" + i + be[1]);
+        }
+        Files.move(active, target, StandardCopyOption.ATOMIC_MOVE);
+        scheduleGzip(target);
+        return target;
+    }
+
+    /** Comprime segmentos rotados que quedaron sin comprimir (p.ej. por un cierre abrupto). */
+    static void compressLeftovers(Path active) {
+        try {
+            for (Path p : list(active)) {
+                if (!p.equals(active) && !p.getFileName().toString().endsWith(".gz")) scheduleGzip(p);
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudieron revisar los segmentos del log: " + e.getMessage());
+        }
+    }
+
+    /** Espera a que terminen las compresiones pendientes (se usa al cerrar el log). */
+    static void awaitCompression(long timeoutMillis) {
+        try {
+            GZIP.submit(() -> {}).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception ignored) {}
+    }
+
+    private static void scheduleGzip(Path plain) {
+        GZIP.submit(() -> {
+            Path gz = gzOf(plain);
+            Path tmp = plain.resolveSibling(gz.getFileName() + ".tmp");
+            try (InputStream in = Files.newInputStream(plain);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+                in.transferTo(out);
+            } catch (IOException e) {
+                System.err.println("No se pudo comprimir " + plain + ": " + e.getMessage());
+                try { Files.deleteIfExists(tmp); } catch (IOException ignored) {}
+                return;
+            }
+            try {
+                Files.move(tmp, gz, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(plain);
+            } catch (IOException e) {
+                System.err.println("No se pudo comprimir " + plain + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Segmentos en orden cronológico: rotados (.gz o sin comprimir) y al final el activo.
+     * Si un segmento existe en ambas formas (compresión en curso) se usa solo el .gz.
+     */
+    public static List<Path> list(Path active) throws IOException {
+        String[] be = baseAndExt(active);
+        String prefix = be[0] + "-";
+        Path dir = parentOf(active);
+        TreeMap<String, Path> rotated = new TreeMap<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, be[0] + "-*")) {
+                for (Path p : ds) {
+                    String n = p.getFileName().toString();
+                    if (!n.startsWith(prefix)) continue;
+                    if (n.endsWith(be[1] + ".gz")) rotated.put(n.substring(0, n.length() - 3), p);
+                    else if (n.endsWith(be[1])) rotated.putIfAbsent(n, p);
+                }
+            }
+        }
+        List<Path> out = new ArrayList<>(rotated.values());
+        if (Files.exists(active)) out.add(active);
+        return out;
+    }
+
+    /** Abre un segmento para lectura secuencial (descomprime al vuelo si es .gz). */
+    public static BufferedReader open(Path segment) throws IOException {
+        InputStream in = Files.newInputStream(segment);
+        if (segment.getFileName().toString().endsWith(".gz")) in = new GZIPInputStream(in, 64 * 1024);
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private static Path gzOf(Path p) { return p.resolveSibling(p.getFileName() + ".gz"); }
+
+    private static Path parentOf(Path p) {
+        Path parent = p.toAbsolutePath().getParent();
+        return parent == null ? Paths.get(".") : parent;
+    }
+
+    /** "operaciones.jsonl" -> ["operaciones", ".jsonl"] */
+    private static String[] baseAndExt(Path p) {
+        String n = p.getFileName().toString();
+        int dot = n.lastIndexOf('.');
+        return (dot > 0) ? new String[]{ n.substring(0, dot), n.substring(dot) } : new String[]{ n, "" };
+    }
+}
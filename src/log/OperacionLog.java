@@ -1,14 +1,13 @@
 package log;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-
+/**
+ * Registro de operaciones (una línea por operación en operaciones.log).
+ * La escritura es asíncrona: ver {@link AsyncLogWriter}. El hilo llamador solo
+ * publica los datos en un buffer en memoria; el formato y la E/S ocurren en el
+ * hilo escritor, que agrupa las líneas y las vuelca por cantidad o por tiempo.
+ */
 public class OperacionLog {
 
-    private static final String LOG_FILE = "operaciones.log";
-
     public static void registrarOperacion(
             String archivoEntrada,
             String archivoSalida,
@@ -18,26 +17,36 @@ public class OperacionLog {
             double porcentajeCompresion,
             String modoOperacion
     ) {
-        // timestamp
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        registrarOperacion(archivoEntrada, archivoSalida, algoritmo, tamOriginal, tamFinal,
+                porcentajeCompresion, modoOperacion, null);
+    }
 
-        // línea de log (una sola línea por operación)
-        String linea = String.format(
-                "[%s] modo=%s | alg=%s | in=%s (%d bytes) | out=%s (%d bytes) | ratio=%.2f%%\n",
-                timestamp,
-                modoOperacion,
-                algoritmo,
+    /** Igual, con la ruta de la política adaptativa que eligió el resultado (null si no aplica). */
+    public static void registrarOperacion(
+            String archivoEntrada,
+            String archivoSalida,
+            String algoritmo,
+            long tamOriginal,
+            long tamFinal,
+            double porcentajeCompresion,
+            String modoOperacion,
+            String ruta
+    ) {
+        AsyncLogWriter.shared().publish(
+                System.currentTimeMillis(),
                 archivoEntrada,
-                tamOriginal,
                 archivoSalida,
+                algoritmo,
+                modoOperacion,
+                ruta,
+                tamOriginal,
                 tamFinal,
                 porcentajeCompresion
         );
+    }
 
-        try (FileWriter fw = new FileWriter(LOG_FILE, true)) {
-            fw.write(linea);
-        } catch (IOException e) {
-            System.err.println("No se pudo escribir en el log: " + e.getMessage());
-        }
+    /** Bloquea hasta que todas las operaciones registradas estén escritas en disco. */
+    public static void vaciar() {
+        AsyncLogWriter.shared().flush();
     }
 }
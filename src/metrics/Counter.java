@@ -0,0 +1,15 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Contador monótono (LongAdder: sin contención entre hilos del lote). */
+public final class Counter {
+    private final LongAdder v = new LongAdder();
+
+    Counter() {}
+
+    public void inc()         { v.increment(); }
+    public void add(long n)   { v.add(n); }
+    public long get()         { return v.sum(); }
+    void reset()              { v.reset(); }
+}
@@ -0,0 +1,77 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias estilo HDR (log-lineal): cada potencia de 2 de nanosegundos
+ * se divide en {@value #SUB} sub-cubetas, así el error relativo es &lt; 1/{@value #SUB}
+ * (~3%) en todo el rango de 1 ns a ~290 años. Registrar es O(1) y sin locks:
+ * un incremento atómico en la cubeta más dos LongAdder.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;              // 32 sub-cubetas por octava
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram() {}
+
+    /** Registra una duración en nanosegundos (valores negativos cuentan como 0). */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts.incrementAndGet(index(v));
+        count.increment();
+        sum.add(v);
+        if (v > max.get()) max.accumulateAndGet(v, Math::max);
+    }
+
+    /** Atajo: registra el tiempo transcurrido desde {@code startNanos} (System.nanoTime()). */
+    public void recordSince(long startNanos) { record(System.nanoTime() - startNanos); }
+
+    public long count()    { return count.sum(); }
+    public long sumNanos() { return sum.sum(); }
+    public long maxNanos() { return max.get(); }
+
+    /** Percentil aproximado (q en [0,1]) en nanosegundos: límite superior de la cubeta. */
+    public long percentile(double q) {
+        long n = 0;
+        long[] snap = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) { snap[i] = counts.get(i); n += snap[i]; }
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(Math.min(1.0, Math.max(0.0, q)) * n);
+        long acc = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            acc += snap[i];
+            if (acc >= rank && snap[i] > 0) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        count.reset(); sum.reset(); max.set(0);
+    }
+
+    // Valores < SUB van directo; el resto: (octava, SUB_BITS bits siguientes al bit alto).
+    static int index(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);           // >= SUB_BITS
+        int shift = exp - SUB_BITS;
+        int sub = (int) (v >>> shift) & (SUB - 1);
+        return (shift + 1) * SUB + sub;
+    }
+
+    static long upperBound(int idx) {
+        if (idx < SUB) return idx;
+        int shift = idx / SUB - 1;
+        long sub = idx % SUB;
+        long base = (SUB + sub) << shift;
+        return base + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,149 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registro global de métricas (contadores y latencias) de bajo costo.
+ *
+ * Nombres al estilo Prometheus con etiquetas fijas al crear el handle, p.ej.
+ *   Metrics.histogram("sfe_codec_seconds", "alg", "LZSS", "phase", "compress")
+ * Los handles se pueden guardar en static final; pedirlos de nuevo devuelve el mismo objeto.
+ *
+ * Exposición:
+ *  - JMX (siempre): MXBean "sfe:type=Metrics".
+ *  - Prometheus por HTTP si -Dsfe.metrics.http=PUERTO (ruta /metrics), solo en loopback
+ *    salvo -Dsfe.metrics.bind=DIRECCIÓN (p. ej. 0.0.0.0 para todas las interfaces).
+ *  - Prometheus en archivo (textfile collector) si -Dsfe.metrics.file=RUTA; se reescribe
+ *    cada sfe.metrics.fileSeconds (15 s) y una última vez al apagar la JVM.
+ * Los exportadores arrancan al cargar la clase (primer contador o latencia registrados);
+ * un main que quiera exponerlos antes de registrar nada llama a {@link #start()}.
+ */
+public final class Metrics {
+    private Metrics(){}
+
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, String> HELP = new ConcurrentHashMap<>();
+
+    static {
+        help("sfe_operations_total", "Operaciones de archivo terminadas con éxito");
+        help("sfe_operation_errors_total", "Operaciones de archivo que fallaron");
+        help("sfe_operation_seconds", "Latencia total por operación de archivo");
+        help("sfe_bytes_in_total", "Bytes de entrada por modo y algoritmo");
+        help("sfe_bytes_out_total", "Bytes de salida por modo y algoritmo");
+        help("sfe_codec_seconds", "Latencia de cada códec por fase");
+        help("sfe_select_seconds", "Tiempo de selección de estrategia (tryStrategies)");
+        help("sfe_crypto_seconds", "Latencia de cifrado/descifrado");
+        help("sfe_io_seconds", "Latencia de lectura/escritura de archivos");
+        help("sfe_batch_files_total", "Archivos procesados por el lote por estado");
+        start();
+    }
+
+    public static Counter counter(String name, String... labels) {
+        return COUNTERS.computeIfAbsent(key(name, labels), k -> new Counter());
+    }
+
+    public static LatencyHistogram histogram(String name, String... labels) {
+        return HISTOGRAMS.computeIfAbsent(key(name, labels), k -> new LatencyHistogram());
+    }
+
+    /** Texto # HELP para un nombre de métrica. */
+    public static void help(String name, String text) { HELP.put(name, text); }
+
+    /** Clave completa: nombre{k1="v1",k2="v2"} (pares clave/valor en el orden dado). */
+    static String key(String name, String... labels) {
+        if (labels.length == 0) return name;
+        if ((labels.length & 1) != 0) throw new IllegalArgumentException("Etiquetas deben ser pares clave/valor");
+        StringBuilder sb = new StringBuilder(name).append('{');
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String escape(String v) {
+        if (v == null) return "";
+        return v.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    static Map<String, Counter> counters() { return new TreeMap<>(COUNTERS); }
+    static Map<String, LatencyHistogram> histograms() { return new TreeMap<>(HISTOGRAMS); }
+    static String helpOf(String name) { return HELP.get(name); }
+
+    public static void reset() {
+        COUNTERS.values().forEach(Counter::reset);
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+    }
+
+    // ====== Exposición ======
+
+    private static boolean started;
+
+    /**
+     * Registra el MXBean y arranca los exportadores configurados por propiedades. Idempotente:
+     * el inicializador estático ya lo llama, así que repetirlo no abre otro puerto.
+     */
+    public static synchronized void start() {
+        if (started) return;
+        started = true;
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = new ObjectName("sfe:type=Metrics");
+            if (!mbs.isRegistered(on)) mbs.registerMBean(new MetricsView(), on);
+        } catch (Exception e) {
+            System.err.println("[METRICS] JMX no disponible: " + e.getMessage());
+        }
+        Integer port = Integer.getInteger("sfe.metrics.http");
+        if (port != null) {
+            String bind = System.getProperty("sfe.metrics.bind");
+            try {
+                PrometheusExporter.startHttp(bind, port);
+            } catch (Exception e) {
+                System.err.println("[METRICS] No se pudo abrir el puerto " + port
+                        + (bind != null ? " en " + bind : "") + ": " + e.getMessage());
+            }
+        }
+        String file = System.getProperty("sfe.metrics.file");
+        if (file != null && !file.isBlank()) {
+            Path p = Paths.get(file);
+            PrometheusExporter.startFile(p, Long.getLong("sfe.metrics.fileSeconds", 15L));
+        }
+    }
+
+    private static final class MetricsView implements MetricsMXBean {
+        @Override public Map<String, Long> getCounters() {
+            Map<String, Long> m = new TreeMap<>();
+            counters().forEach((k, c) -> m.put(k, c.get()));
+            return m;
+        }
+        @Override public Map<String, Long> getLatencyCounts() {
+            Map<String, Long> m = new TreeMap<>();
+            histograms().forEach((k, h) -> m.put(k, h.count()));
+            return m;
+        }
+        @Override public Map<String, Double> getLatencyP50Millis() { return quantile(0.50); }
+        @Override public Map<String, Double> getLatencyP99Millis() { return quantile(0.99); }
+        @Override public Map<String, Double> getLatencyMaxMillis() {
+            Map<String, Double> m = new TreeMap<>();
+            histograms().forEach((k, h) -> m.put(k, h.maxNanos() / 1e6));
+            return m;
+        }
+        @Override public String getPrometheusText() { return PrometheusExporter.render(); }
+        @Override public void reset() { Metrics.reset(); }
+
+        private static Map<String, Double> quantile(double q) {
+            Map<String, Double> m = new TreeMap<>();
+            histograms().forEach((k, h) -> m.put(k, h.percentile(q) / 1e6));
+            return m;
+        }
+    }
+}
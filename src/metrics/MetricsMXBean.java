@@ -0,0 +1,17 @@
+package metrics;
+
+import java.util.Map;
+
+/** Vista JMX de las métricas (objeto "sfe:type=Metrics"). */
+public interface MetricsMXBean {
+    /** Contadores (operaciones, bytes, errores) por nombre completo con etiquetas. */
+    Map<String, Long> getCounters();
+    /** Cantidad de muestras por histograma. */
+    Map<String, Long> getLatencyCounts();
+    Map<String, Double> getLatencyP50Millis();
+    Map<String, Double> getLatencyP99Millis();
+    Map<String, Double> getLatencyMaxMillis();
+    /** Las mismas métricas en formato de exposición de Prometheus. */
+    String getPrometheusText();
+    void reset();
+}
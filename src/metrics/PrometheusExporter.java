@@ -0,0 +1,127 @@
+package metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formato de exposición de texto de Prometheus (0.0.4).
+ * Contadores como "counter"; latencias como "summary" en segundos
+ * (cuantiles 0.5/0.9/0.99/0.999 + _sum + _count) y un gauge _max aparte.
+ */
+public final class PrometheusExporter {
+    private PrometheusExporter(){}
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    public static String render() {
+        StringBuilder sb = new StringBuilder(4096);
+        Set<String> typed = new HashSet<>();
+        for (Map.Entry<String, Counter> e : Metrics.counters().entrySet()) {
+            String name = baseName(e.getKey());
+            header(sb, typed, name, "counter");
+            sb.append(e.getKey()).append(' ').append(e.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> e : Metrics.histograms().entrySet()) {
+            String name = baseName(e.getKey());
+            String labels = labelsOf(e.getKey());
+            LatencyHistogram h = e.getValue();
+            header(sb, typed, name, "summary");
+            for (double q : QUANTILES) {
+                sb.append(name).append('{');
+                if (!labels.isEmpty()) sb.append(labels).append(',');
+                sb.append("quantile=\"").append(q).append("\"} ").append(seconds(h.percentile(q))).append('\n');
+            }
+            sb.append(name).append("_sum").append(braces(labels)).append(' ').append(seconds(h.sumNanos())).append('\n');
+            sb.append(name).append("_count").append(braces(labels)).append(' ').append(h.count()).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> e : Metrics.histograms().entrySet()) {
+            String name = baseName(e.getKey()) + "_max";
+            header(sb, typed, name, "gauge");
+            sb.append(name).append(braces(labelsOf(e.getKey()))).append(' ')
+              .append(seconds(e.getValue().maxNanos())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Servidor HTTP mínimo (hilo daemon) que responde GET /metrics en bind:port. Sin bind
+     * escucha solo en loopback: las métricas incluyen nombres de algoritmos y volúmenes, y
+     * exponerlas a la red (p. ej. bind "0.0.0.0") debe ser una decisión explícita.
+     */
+    static void startHttp(String bind, int port) throws IOException {
+        InetAddress addr = (bind == null || bind.isBlank()) ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bind);
+        HttpServer srv = HttpServer.create(new InetSocketAddress(addr, port), 0);
+        srv.createContext("/metrics", ex -> {
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()) { os.write(body); }
+        });
+        srv.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "sfe-metrics-http");
+            t.setDaemon(true);
+            return t;
+        }));
+        srv.start();
+    }
+
+    /** Reescribe el archivo periódicamente (escritura atómica: tmp + move) y al apagar la JVM. */
+    static void startFile(Path file, long everySeconds) {
+        ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sfe-metrics-file");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1, everySeconds);
+        ses.scheduleAtFixedRate(() -> writeFile(file), period, period, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> writeFile(file), "sfe-metrics-final"));
+    }
+
+    public static void writeFile(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tmp, render());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[METRICS] No se pudo escribir " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static void header(StringBuilder sb, Set<String> typed, String name, String type) {
+        if (!typed.add(name)) return;
+        String help = Metrics.helpOf(name);
+        if (help != null) sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String baseName(String key) {
+        int b = key.indexOf('{');
+        return b < 0 ? key : key.substring(0, b);
+    }
+
+    private static String labelsOf(String key) {
+        int b = key.indexOf('{');
+        return b < 0 ? "" : key.substring(b + 1, key.length() - 1);
+    }
+
+    private static String braces(String labels) { return labels.isEmpty() ? "" : "{" + labels + "}"; }
+
+    private static String seconds(long nanos) { return String.format(Locale.ROOT, "%.9f", nanos / 1e9); }
+}
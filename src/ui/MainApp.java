@@ -1,11 +1,15 @@
 package ui;
 
+import archivos.CompressionProfile;
 import archivos.FileCompressor;
 import app.MainCrypto;
 import batch.BatchProcessor;
 import batch.BatchProcessor.BatchConfig;
 import batch.BatchProcessor.Mode;
+import crypto.CipherMode;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -22,12 +26,26 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MainApp extends Application {
 
     private TextArea console;
     private TextField tfInclude, tfExclude;
-    private CheckBox cbRecursive, cbOverwrite, cbDryRun;
+    private CheckBox cbRecursive, cbOverwrite, cbDryRun, cbSkipCompressed;
+    private ComboBox<CompressionProfile> cbProfile;
+    private VBox jobsBox;
+
+    // Trabajos en segundo plano: varios pueden correr a la vez; el resto espera en cola.
+    private static final int WORKERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private final AtomicInteger jobSeq = new AtomicInteger();
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKERS, r -> {
+        Thread t = new Thread(r, "sfe-job-" + jobSeq.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
 
     @Override
     public void start(Stage stage) {
@@ -42,13 +60,22 @@ public class MainApp extends Application {
 
         console = new TextArea("Listo. Elige una acción.");
         console.setEditable(false);
-        console.setPrefRowCount(14);
+        console.setPrefRowCount(10);
+
+        jobsBox = new VBox(6);
+        ScrollPane jobsPane = new ScrollPane(jobsBox);
+        jobsPane.setFitToWidth(true);
+        jobsPane.setPrefViewportHeight(110);
 
         tfInclude = new TextField(); tfInclude.setPromptText(".txt,.md");
         tfExclude = new TextField(); tfExclude.setPromptText(".log");
         cbRecursive = new CheckBox("Recursivo"); cbRecursive.setSelected(true);
         cbOverwrite = new CheckBox("Sobrescribir"); cbOverwrite.setSelected(true);
         cbDryRun = new CheckBox("Dry-run");
+        cbSkipCompressed = new CheckBox("Omitir ya comprimidos");
+        cbProfile = new ComboBox<>();
+        cbProfile.getItems().addAll(CompressionProfile.values());
+        cbProfile.setValue(CompressionProfile.defaultProfile());
 
         GridPane bottom = new GridPane();
         bottom.setHgap(10); bottom.setVgap(8);
@@ -56,9 +83,11 @@ public class MainApp extends Application {
         bottom.add(tfInclude, 1, 0);
         bottom.add(new Label("Exclude:"), 0, 1);
         bottom.add(tfExclude, 1, 1);
-        bottom.add(new HBox(16, cbRecursive, cbOverwrite, cbDryRun), 1, 2);
+        bottom.add(new HBox(16, cbRecursive, cbOverwrite, cbDryRun, cbSkipCompressed), 1, 2);
+        bottom.add(new Label("Perfil:"), 0, 3);
+        bottom.add(cbProfile, 1, 3);
 
-        VBox root = new VBox(12, topBar, console, bottom);
+        VBox root = new VBox(12, topBar, console, new Label("Trabajos:"), jobsPane, bottom);
         root.setPadding(new Insets(12));
 
         Stage st = stage;
@@ -69,10 +98,15 @@ public class MainApp extends Application {
         btnFolder.setOnAction(e -> doProcessFolder(st));
 
         stage.setTitle("Compresor Seguro (LZSS + XOR) — Fase 6");
-        stage.setScene(new Scene(root, 860, 520));
+        stage.setScene(new Scene(root, 860, 620));
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        workers.shutdownNow(); // interrumpe los trabajos en curso (cancelación cooperativa)
+    }
+
     private Button makeButton(String text, String iconPath) {
         Button b = new Button(text);
         try {
@@ -84,7 +118,10 @@ public class MainApp extends Application {
         b.setMaxHeight(Double.MAX_VALUE);
         return b;
     }
-    private void log(String s){ console.appendText("\n" + s); }
+    private void log(String s){
+        if (Platform.isFxApplicationThread()) console.appendText("\n" + s);
+        else Platform.runLater(() -> console.appendText("\n" + s));
+    }
     private void showError(Exception ex){
         Alert a = new Alert(Alert.AlertType.ERROR, ex.getMessage(), ButtonType.OK);
         a.setHeaderText("Error"); a.showAndWait();
@@ -99,18 +136,71 @@ public class MainApp extends Application {
         return d.showAndWait();
     }
 
+    // ===== Trabajos en segundo plano =====
+
+    /** Operación de un solo archivo (el códec no reporta avance: barra indeterminada). */
+    @FunctionalInterface
+    private interface FileJob { void run() throws Exception; }
+
+    private Task<String> fileTask(FileJob job, String okMsg){
+        return new Task<>() {
+            @Override protected String call() throws Exception {
+                updateMessage("Procesando ...");
+                updateProgress(-1, 1);
+                job.run();
+                updateProgress(1, 1);
+                return okMsg;
+            }
+        };
+    }
+
+    /** Encola el trabajo y agrega su fila (título, barra, estado, Cancelar) al panel. */
+    private void submit(String title, Task<String> task){
+        Label lbTitle = new Label(title);
+        lbTitle.setPrefWidth(300);
+        ProgressBar bar = new ProgressBar(0);
+        bar.setPrefWidth(180);
+        Label lbStatus = new Label("En cola");
+        Button btnCancel = new Button("Cancelar");
+        HBox row = new HBox(10, lbTitle, bar, lbStatus, btnCancel);
+        row.setAlignment(Pos.CENTER_LEFT);
+
+        bar.progressProperty().bind(task.progressProperty());
+        lbStatus.textProperty().bind(task.messageProperty());
+        btnCancel.setOnAction(e -> task.cancel(true));
+
+        task.setOnSucceeded(e -> finishRow(row, lbStatus, btnCancel, "OK", task.getValue()));
+        task.setOnCancelled(e -> finishRow(row, lbStatus, btnCancel, "Cancelado", "CANCELADO: " + title));
+        task.setOnFailed(e -> {
+            Throwable ex = task.getException();
+            finishRow(row, lbStatus, btnCancel, "Error", "ERROR: " + ex.getMessage());
+            showError(ex instanceof Exception x ? x : new Exception(ex));
+        });
+
+        jobsBox.getChildren().add(0, row);
+        log("En cola: " + title);
+        workers.submit(task);
+    }
+
+    private void finishRow(HBox row, Label lbStatus, Button btnCancel, String status, String msg){
+        lbStatus.textProperty().unbind();
+        lbStatus.setText(status);
+        btnCancel.setText("Quitar");
+        btnCancel.setOnAction(e -> jobsBox.getChildren().remove(row));
+        if (msg != null) log(msg);
+    }
+
     // ===== Acciones de archivo único =====
     private void doCompress(Stage st){
         FileChooser fc = new FileChooser();
         fc.setTitle("Elegir archivo a comprimir");
         File f = fc.showOpenDialog(st);
         if (f == null) return;
-        try {
-            Path in = f.toPath();
-            Path out = FileCompressor.changeExt(in, ".cmp");
-            FileCompressor.compressFile(in, out);
-            log("OK: " + in + " -> " + out);
-        } catch (Exception ex){ log("ERROR: " + ex.getMessage()); showError(ex); }
+        Path in = f.toPath();
+        Path out = FileCompressor.changeExt(in, ".cmp");
+        CompressionProfile profile = cbProfile.getValue();
+        submit("Comprimir " + in.getFileName(),
+                fileTask(() -> FileCompressor.compressFile(in, out, profile), "OK: " + in + " -> " + out));
     }
 
     private void doDecompress(Stage st){
@@ -119,12 +209,10 @@ public class MainApp extends Application {
         fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("CMP","*.cmp"));
         File f = fc.showOpenDialog(st);
         if (f == null) return;
-        try {
-            Path in = f.toPath();
-            Path out = FileCompressor.changeExt(in, ".txt");
-            FileCompressor.decompressFile(in, out);
-            log("OK: " + in + " -> " + out);
-        } catch (Exception ex){ log("ERROR: " + ex.getMessage()); showError(ex); }
+        Path in = f.toPath();
+        Path out = FileCompressor.changeExt(in, ".txt");
+        submit("Descomprimir " + in.getFileName(),
+                fileTask(() -> FileCompressor.decompressFile(in, out), "OK: " + in + " -> " + out));
     }
 
     private void doCompEncrypt(Stage st){
@@ -134,12 +222,13 @@ public class MainApp extends Application {
         if (f == null) return;
         var pw = askPassword("Comprimir + Encriptar");
         if (pw.isEmpty() || pw.get().isBlank()) { showWarn("Contraseña vacía"); return; }
-        try {
-            Path in = f.toPath();
-            Path out = FileCompressor.changeExt(in, ".ec");
-            MainCrypto.comprimirYEncriptarArchivo(in.toString(), out.toString(), pw.get());
-            log("OK: " + in + " -> " + out);
-        } catch (Exception ex){ log("ERROR: " + ex.getMessage()); showError(ex); }
+        Path in = f.toPath();
+        Path out = FileCompressor.changeExt(in, ".ec");
+        String p = pw.get();
+        CompressionProfile profile = cbProfile.getValue();
+        submit("Comprimir + Encriptar " + in.getFileName(),
+                fileTask(() -> FileCompressor.compressEncrypt(in, out, p, CipherMode.defaultMode(), profile),
+                        "OK: " + in + " -> " + out));
     }
 
     private void doDecryptDecompress(Stage st){
@@ -150,12 +239,12 @@ public class MainApp extends Application {
         if (f == null) return;
         var pw = askPassword("Desencriptar + Descomprimir");
         if (pw.isEmpty() || pw.get().isBlank()) { showWarn("Contraseña vacía"); return; }
-        try {
-            Path in = f.toPath();
-            Path out = FileCompressor.changeExt(in, ".txt");
-            MainCrypto.desencriptarYDescomprimirArchivo(in.toString(), out.toString(), pw.get());
-            log("OK: " + in + " -> " + out);
-        } catch (Exception ex){ log("ERROR: " + ex.getMessage()); showError(ex); }
+        Path in = f.toPath();
+        Path out = FileCompressor.changeExt(in, ".txt");
+        String p = pw.get();
+        submit("Desencriptar + Descomprimir " + in.getFileName(),
+                fileTask(() -> MainCrypto.desencriptarYDescomprimirArchivo(in.toString(), out.toString(), p),
+                        "OK: " + in + " -> " + out));
     }
 
     // ===== Carpeta (primero pregunta MODO como antes) =====
@@ -180,19 +269,39 @@ public class MainApp extends Application {
         File out = dc2.showDialog(st);
         if (out == null) return;
 
-        try {
-            BatchConfig cfg = new BatchConfig(in.getAbsolutePath(), out.getAbsolutePath(), mode)
-                    .recursive(cbRecursive.isSelected())
-                    .overwrite(cbOverwrite.isSelected())
-                    .dryRun(cbDryRun.isSelected())
-                    .password(pw);
-
-            for (String ext : splitList(tfInclude.getText())) if (!ext.isBlank()) cfg.include(cleanExt(ext));
-            for (String ext : splitList(tfExclude.getText())) if (!ext.isBlank()) cfg.exclude(cleanExt(ext));
-
-            BatchProcessor.runBatch(cfg);
-            log("Procesamiento completado: " + in + " -> " + out + " (" + mode + ")");
-        } catch (Exception ex){ log("ERROR: " + ex.getMessage()); showError(ex); }
+        BatchConfig cfg = new BatchConfig(in.getAbsolutePath(), out.getAbsolutePath(), mode)
+                .recursive(cbRecursive.isSelected())
+                .overwrite(cbOverwrite.isSelected())
+                .dryRun(cbDryRun.isSelected())
+                .skipCompressed(cbSkipCompressed.isSelected())
+                .password(pw)
+                .profile(cbProfile.getValue());
+
+        for (String ext : splitList(tfInclude.getText())) if (!ext.isBlank()) cfg.include(cleanExt(ext));
+        for (String ext : splitList(tfExclude.getText())) if (!ext.isBlank()) cfg.exclude(cleanExt(ext));
+
+        Task<String> task = new Task<>() {
+            @Override protected String call() throws Exception {
+                updateMessage("Listando archivos ...");
+                updateProgress(-1, 1);
+                cfg.listener(new BatchProcessor.Listener() {
+                    @Override public void onStart(int total) {
+                        updateProgress(0, Math.max(1, total));
+                    }
+                    @Override public void onFile(int index, int total, Path file, BatchProcessor.Status status, String detail) {
+                        updateProgress(index, total);
+                        updateMessage(index + "/" + total + " " + status + " " + file.getFileName());
+                        log(status == BatchProcessor.Status.SKIP || status == BatchProcessor.Status.FAIL
+                                ? "[" + status + "] " + file + " - " + detail
+                                : detail);
+                    }
+                });
+                BatchProcessor.Summary sum = BatchProcessor.runBatch(cfg);
+                return "Procesamiento completado: " + in + " -> " + out + " (" + mode + ") "
+                        + "OK=" + sum.ok + " SKIP=" + sum.skip + " FAIL=" + sum.fail;
+            }
+        };
+        submit("Carpeta " + in.getName() + " (" + mode + ")", task);
     }
 
     private Mode askMode(){